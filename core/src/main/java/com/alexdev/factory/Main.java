@@ -4,10 +4,21 @@ import com.alexdev.factory.input.MouseScrollHandler;
 import com.alexdev.factory.inventory.Inventory;
 import com.alexdev.factory.inventory.Item;
 import com.alexdev.factory.inventory.ui.InventoryUI;
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.ChunkGenerationService;
 import com.alexdev.factory.map.DevMap;
+import com.alexdev.factory.map.render.TerrainRenderer;
+import com.alexdev.factory.production.DrillSystem;
+import com.alexdev.factory.resource.NodeStore;
 import com.alexdev.factory.resource.ResourceManager;
 import com.alexdev.factory.resource.ResourceNode;
+import com.alexdev.factory.resource.ResourceSpawnService;
+import com.alexdev.factory.resource.SpawnTable;
+import com.alexdev.factory.resource.render.ResourceNodeRenderer;
 import com.alexdev.factory.ui.Hud;
+import com.alexdev.factory.world.PlacementGrid;
+import com.alexdev.factory.world.RegionStore;
+import com.alexdev.factory.world.WorldIndex;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
@@ -16,19 +27,29 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.GridPoint2;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.IntArray;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 public class Main extends ApplicationAdapter {
     private ShapeRenderer shapeRenderer;
     private OrthographicCamera camera;
     private DevMap mapGenerator;
+    private ChunkCache chunkCache;
+    private ChunkGenerationService chunkService;
+    private TerrainRenderer terrainRenderer;
     private ResourceManager resourceManager;
+    private ResourceNodeRenderer resourceRenderer;
+    private ResourceSpawnService resourceSpawner;
+    private DrillSystem drillSystem;
+    private RegionStore regionStore;
+    private WorldIndex worldIndex;
+    private PlacementGrid placementGrid;
     private Stage stage;
     private Hud hud;
     private Inventory inventory;
@@ -40,8 +61,15 @@ public class Main extends ApplicationAdapter {
     private float speed = 200;
     private float miningRange = 100f;
     private float miningSpeed = 1.5f;
+    private float drillSpeed = 1f; // unités par seconde
+    private int drillBufferCapacity = 50;
+
+    private float debugRefresh; // secondes avant la prochaine mise à jour des compteurs de debug
+    private float lastPlayerX, lastPlayerY;
+    private float velocityX, velocityY; // en tuiles par seconde, lissée
 
     private ResourceNode currentMiningNode;
+    private final IntArray visibleNodes = new IntArray(); // nodes visibles, pour le rendu des foreuses
     private int lastPlayerTileX = 0;
     private int lastPlayerTileY = 0;
 
@@ -62,8 +90,30 @@ public class Main extends ApplicationAdapter {
     @Override
     public void create() {
         shapeRenderer = new ShapeRenderer();
-        mapGenerator = new DevMap(21343124L);
-        resourceManager = new ResourceManager(mapGenerator, 21343124L);
+        long seed = 21343124L;
+        mapGenerator = new DevMap(seed);
+        regionStore = new RegionStore(Gdx.files.local("world/" + seed).file());
+        chunkCache = new ChunkCache(mapGenerator, 256, 8192); // ~8x8 chunks visibles + marge, zones explorées compressées
+        chunkService = new ChunkGenerationService(chunkCache);
+        chunkService.setRegionStore(regionStore);
+        regionStore.loadOverlay(mapGenerator.getOverlay());
+        terrainRenderer = new TerrainRenderer(chunkService);
+        resourceManager = new ResourceManager(mapGenerator, seed);
+        resourceManager.setSpawnTable(SpawnTable.load(Gdx.files.internal(SpawnTable.ASSET_PATH)));
+        regionStore.loadNodeDeltas(resourceManager.getDeltas()); // nodes entamés ou épuisés
+        resourceRenderer = new ResourceNodeRenderer(resourceManager);
+        resourceSpawner = new ResourceSpawnService(resourceManager);
+        drillSystem = new DrillSystem(resourceManager);
+
+        // Résumés par chunk tenus à jour pendant la génération
+        worldIndex = new WorldIndex(chunkCache, resourceManager);
+        chunkService.setChunkListener(worldIndex);
+        chunkCache.setTileListener(worldIndex);
+        resourceManager.addNodeListener(worldIndex);
+
+        // Occupation des tuiles pour le placement des bâtiments
+        placementGrid = new PlacementGrid(chunkCache, resourceManager);
+        resourceManager.addNodeListener(placementGrid);
 
         stage = new Stage(new ScreenViewport());
         hud = new Hud();
@@ -74,6 +124,8 @@ public class Main extends ApplicationAdapter {
 
         playerX = Gdx.graphics.getWidth() / 2f;
         playerY = Gdx.graphics.getHeight() / 2f;
+        lastPlayerX = playerX;
+        lastPlayerY = playerY;
 
         collectibles = new ArrayList<>();
         random = new Random();
@@ -86,13 +138,22 @@ public class Main extends ApplicationAdapter {
         inventory.add(Item.createPotion());
         inventory.add(Item.createSword());
 
+        // Foreuses de la partie précédente (leur sortie est l'inventaire du joueur)
+        if (regionStore.loadDrills(drillSystem, inventory)) {
+            for (int id = 0; id < drillSystem.getIdCount(); id++) {
+                if (drillSystem.exists(id)) {
+                    placementGrid.occupy(drillTile(drillSystem.getX(id)), drillTile(drillSystem.getY(id)), 1, 1);
+                }
+            }
+        }
+
         // Créer l'UI de l'inventaire
         inventoryUI = new InventoryUI(inventory, skin);
         stage.addActor(inventoryUI);
         inventoryUI.centerOnScreen();
         inventoryUI.setVisible(false);
 
-        // Générer les ressources autour du joueur au démarrage
+        // Ressources autour du joueur (les nodes modifiés retrouvent leur état enregistré)
         int tileSize = 32;
         int playerTileX = (int)(playerX / tileSize);
         int playerTileY = (int)(playerY / tileSize);
@@ -112,14 +173,20 @@ public class Main extends ApplicationAdapter {
         float delta = Gdx.graphics.getDeltaTime();
 
         handleInput(delta);
+        updateChunkStreaming(delta);
         updateResourceGeneration();
         updateMining(delta);
+        drillSystem.update(delta);
         updateCamera();
         renderScene();
 
         // Rendu du Stage (UI)
         stage.act(delta);
         stage.draw();
+
+        updateDebugText(delta);
+        hud.update(camera.zoom);
+        hud.draw();
     }
 
     private void handleInput(float delta) {
@@ -129,11 +196,32 @@ public class Main extends ApplicationAdapter {
             inventoryUI.toggle();
         }
 
+        // F3 : palette de biomes suivante (normale, daltonien, debug)
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) {
+            mapGenerator.setPalette(mapGenerator.getPalette().nextPreset());
+        }
+
+        // F4 : montagne et pétrole les plus proches (message du HUD)
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F4)) {
+            showNearestPointsOfInterest();
+        }
+
+        // F5 : compteurs du cache de chunks, des ressources et des foreuses (HUD)
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F5)) {
+            hud.toggleDebug();
+            debugRefresh = 0;
+        }
+
         // Bloquer le mouvement du joueur quand l'inventaire est ouvert
         if (inventoryUI.isVisible()) {
             return; // Ne pas traiter les mouvements
         }
 
+        // B : pose une foreuse sur le node le plus proche, qui remplit l'inventaire du joueur
+        if (Gdx.input.isKeyJustPressed(Input.Keys.B)) {
+            placeDrill();
+        }
+
         float moveSpeed = speed * delta;
 
         // Déplacement avec les flèches
@@ -149,20 +237,81 @@ public class Main extends ApplicationAdapter {
         if (Gdx.input.isKeyPressed(Input.Keys.S)) playerY -= moveSpeed;
     }
 
+    private void showNearestPointsOfInterest() {
+        int tileSize = 32;
+        GridPoint2 stone = new GridPoint2();
+        String message;
+        if (worldIndex.findNearestBiome((int)(playerX / tileSize), (int)(playerY / tileSize), DevMap.STONE, 16, stone)) {
+            message = "Montagne la plus proche: tuile " + stone.x + ", " + stone.y;
+        } else {
+            message = "Aucune montagne connue à proximité";
+        }
+
+        ResourceNode oil = worldIndex.findNearestResource(playerX, playerY, ResourceNode.ResourceType.OIL, 16);
+        if (oil != null) {
+            message += " - Pétrole le plus proche: " + oil.getX() + ", " + oil.getY();
+        } else {
+            message += " - Aucun pétrole connu à proximité";
+        }
+        hud.showMessage(message);
+    }
+
+    /**
+     * Compteurs de debug du HUD, rafraîchis deux fois par seconde quand ils sont affichés
+     */
+    private void updateDebugText(float delta) {
+        if (!hud.isDebugVisible()) return;
+        debugRefresh -= delta;
+        if (debugRefresh > 0) return;
+        debugRefresh = 0.5f;
+
+        hud.setDebugText(chunkCache + "\n" +
+            "Resources: " + resourceManager.getTotalNodes() + " nodes in " +
+            resourceManager.getResidentChunkCount() + " chunks, " + resourceManager.getDeltas() + "\n" +
+            resourceRenderer + "\n" +
+            resourceSpawner + "\n" +
+            drillSystem);
+    }
+
     /**
-     * Génère de nouvelles ressources quand le joueur se déplace
+     * Publie les chunks générés en arrière-plan et anticipe ceux vers lesquels le joueur se dirige
+     */
+    private void updateChunkStreaming(float delta) {
+        int tileSize = 32;
+
+        // Vitesse instantanée lissée, pour ne pas prédire sur un seul à-coup
+        if (delta > 0) {
+            float instantX = (playerX - lastPlayerX) / tileSize / delta;
+            float instantY = (playerY - lastPlayerY) / tileSize / delta;
+            velocityX += (instantX - velocityX) * 0.2f;
+            velocityY += (instantY - velocityY) * 0.2f;
+        }
+        lastPlayerX = playerX;
+        lastPlayerY = playerY;
+
+        chunkService.publishCompleted(16);
+        chunkService.prefetch(playerX / tileSize, playerY / tileSize, velocityX, velocityY, 2f, 4);
+    }
+
+    /**
+     * Fusionne les ressources générées en arrière-plan et en demande de nouvelles quand le joueur se déplace
      */
     private void updateResourceGeneration() {
         int tileSize = 32;
         int playerTileX = (int)(playerX / tileSize);
         int playerTileY = (int)(playerY / tileSize);
 
+        // Budget fixe par frame : la frame n'attend jamais les workers
+        resourceSpawner.mergeCompleted(64);
+
         // Générer de nouvelles ressources si le joueur s'est déplacé assez loin
         int dx = Math.abs(playerTileX - lastPlayerTileX);
         int dy = Math.abs(playerTileY - lastPlayerTileY);
 
         if (dx > 20 || dy > 20) {
-            resourceManager.generateResourcesInArea(playerTileX, playerTileY, 50);
+            resourceSpawner.requestArea(playerTileX, playerTileY, 50, 128);
+            // Marge au-delà du rayon de génération pour ne pas recharger en faisant des allers-retours
+            resourceManager.unloadDistantChunks(playerTileX, playerTileY, 128);
             lastPlayerTileX = playerTileX;
             lastPlayerTileY = playerTileY;
         }
@@ -172,6 +321,11 @@ public class Main extends ApplicationAdapter {
      * Gère le minage des ressources
      */
     private void updateMining(float delta) {
+        // Node supprimé entre-temps (chunk déchargé) : sa vue n'est plus lisible
+        if (currentMiningNode != null && currentMiningNode.isRemoved()) {
+            currentMiningNode = null;
+        }
+
         // Arrêter le minage du node précédent si on ne mine plus
         if (currentMiningNode != null && !Gdx.input.isKeyPressed(Input.Keys.SPACE)) {
             currentMiningNode.stopMining();
@@ -210,6 +364,31 @@ public class Main extends ApplicationAdapter {
         }
     }
 
+    private void placeDrill() {
+        ResourceNode node = resourceManager.findNearestNode(playerX, playerY, miningRange);
+        if (node == null) return;
+
+        // Une foreuse occupe la tuile de l'origine de son node
+        int tileX = drillTile(node.getX());
+        int tileY = drillTile(node.getY());
+        PlacementGrid.Result placement = placementGrid.check(tileX, tileY, 1, 1, true);
+        if (placement != PlacementGrid.Result.OK) {
+            hud.showMessage("Placement impossible: " + placement);
+            return;
+        }
+
+        int drill = drillSystem.addDrill(node, drillSpeed, drillBufferCapacity);
+        if (drill == DrillSystem.NO_DRILL) return; // déjà une foreuse sur ce node
+
+        placementGrid.occupy(tileX, tileY, 1, 1);
+        drillSystem.setOutput(drill, inventory);
+        hud.showMessage("Foreuse posée sur " + node.getType().displayName);
+    }
+
+    private static int drillTile(float worldCoordinate) {
+        return (int) Math.floor(worldCoordinate / 32);
+    }
+
     private void updateCamera() {
         // Centrer la caméra sur le joueur
         camera.position.set(
@@ -233,30 +412,25 @@ public class Main extends ApplicationAdapter {
             camera.update();
         }
 
+        // Le terrain est dessiné avec ses propres meshes, avant le ShapeRenderer
+        renderMap();
+
         shapeRenderer.setProjectionMatrix(camera.combined);
-        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
 
-        renderMap();
-        renderResources();
+        // Ressources en passes groupées, avant le reste des formes
+        resourceRenderer.render(shapeRenderer, camera);
+
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
         renderPlayer();
         renderCollectibles();
+        renderDrills();
 
         shapeRenderer.end();
     }
 
     private void renderMap() {
-        int tileSize = 32;
-        int viewRadius = 100;
-        int playerTileX = (int)(playerX / tileSize);
-        int playerTileY = (int)(playerY / tileSize);
-
-        for (int x = playerTileX - viewRadius; x <= playerTileX + viewRadius; x++) {
-            for (int y = playerTileY - viewRadius; y <= playerTileY + viewRadius; y++) {
-                int type = mapGenerator.getTile(x, y);
-                shapeRenderer.setColor(mapGenerator.getTileColor(type));
-                shapeRenderer.rect(x * tileSize, y * tileSize, tileSize, tileSize);
-            }
-        }
+        // Niveau de détail choisi selon le zoom, zone visible issue de la caméra
+        terrainRenderer.render(shapeRenderer, camera);
     }
 
     private void renderPlayer() {
@@ -279,48 +453,25 @@ public class Main extends ApplicationAdapter {
         shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
     }
 
-    /**
-     * Dessine les ressources visibles
-     */
-    private void renderResources() {
-        // Calculer la zone visible
-        float camX = camera.position.x;
-        float camY = camera.position.y;
-        float camWidth = camera.viewportWidth * camera.zoom;
-        float camHeight = camera.viewportHeight * camera.zoom;
-
-        List<ResourceNode> visibleNodes = resourceManager.getNodesInArea(
-            camX - camWidth / 2, camY - camHeight / 2,
-            camX + camWidth / 2, camY + camHeight / 2
-        );
-
-        for (ResourceNode node : visibleNodes) {
-            Color color = node.getDisplayColor();
-            shapeRenderer.setColor(color);
-
-            float size = node.getDisplaySize();
-            float x = node.getX() + (node.getSize() - size) / 2;
-            float y = node.getY() + (node.getSize() - size) / 2;
-
-            // Dessiner le node comme un cercle
-            shapeRenderer.circle(x + size / 2, y + size / 2, size / 2, 16);
-
-            // Bordure plus foncée
-            shapeRenderer.end();
-            shapeRenderer.begin(ShapeRenderer.ShapeType.Line);
-            shapeRenderer.setColor(color.r * 0.5f, color.g * 0.5f, color.b * 0.5f, 1);
-            shapeRenderer.circle(x + size / 2, y + size / 2, size / 2, 16);
-            shapeRenderer.end();
-            shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
-
-            // Barre de progression si en cours de minage
-            if (node.isBeingMined()) {
-                float progress = node.getMiningProgress();
-                shapeRenderer.setColor(0, 0, 0, 0.7f);
-                shapeRenderer.rect(x, y + size + 5, size, 6);
-                shapeRenderer.setColor(0, 1, 0, 1);
-                shapeRenderer.rect(x + 1, y + size + 6, (size - 2) * progress, 4);
-            }
+    private void renderDrills() {
+        float halfWidth = camera.viewportWidth * camera.zoom / 2;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2;
+        float size = 16; // plus petite que tout node : visible si son node l'est
+        if (drillSystem.size() == 0) return;
+
+        // Seules les foreuses des nodes visibles, pas toutes celles des chunks épinglés
+        NodeStore store = resourceManager.getStore();
+        resourceManager.getHandlesInArea(camera.position.x - halfWidth, camera.position.y - halfHeight,
+            camera.position.x + halfWidth, camera.position.y + halfHeight, visibleNodes);
+        shapeRenderer.setColor(Color.ORANGE);
+        for (int i = 0; i < visibleNodes.size; i++) {
+            int handle = visibleNodes.get(i);
+            float x = store.getX(handle);
+            float y = store.getY(handle);
+            int id = drillSystem.getDrillAt(x, y);
+            if (id == DrillSystem.NO_DRILL || !drillSystem.isAttached(id)) continue;
+
+            shapeRenderer.rect(x, y, size, size);
         }
     }
 
@@ -333,8 +484,19 @@ public class Main extends ApplicationAdapter {
 
     @Override
     public void dispose() {
+        if (terrainRenderer != null) terrainRenderer.dispose();
+        if (chunkService != null) chunkService.dispose();
+        if (resourceSpawner != null) resourceSpawner.dispose();
+        if (regionStore != null) {
+            resourceManager.recordDeltas();
+            regionStore.saveNodeDeltas(resourceManager.getDeltas());
+            regionStore.saveOverlay(mapGenerator.getOverlay());
+            regionStore.saveDrills(drillSystem);
+            regionStore.close();
+        }
         if (shapeRenderer != null) shapeRenderer.dispose();
         if (stage != null) stage.dispose();
+        if (hud != null) hud.dispose();
         if (skin != null) skin.dispose();
     }
 
@@ -347,6 +509,7 @@ public class Main extends ApplicationAdapter {
 
         // Mise à jour du Stage et recentrage de l'inventaire
         stage.getViewport().update(width, height, true);
+        hud.stage.getViewport().update(width, height, true);
         inventoryUI.centerOnScreen();
     }
 
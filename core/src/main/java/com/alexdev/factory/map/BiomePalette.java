@@ -0,0 +1,99 @@
+package com.alexdev.factory.map;
+
+import com.badlogic.gdx.graphics.Color;
+
+/**
+ * Palette de couleurs des biomes, indexée par type de tuile.
+ * Les couleurs sont créées une seule fois et partagées : les Color retournées
+ * ne doivent pas être modifiées. La version empaquetée (float bits) sert
+ * directement aux sommets des meshes, sans aucune allocation.
+ */
+public final class BiomePalette {
+
+    public static final BiomePalette DEFAULT = new BiomePalette("Défaut",
+        new Color(0.3f, 0.7f, 0.3f, 1),     // herbe vert
+        new Color(0.4f, 0.4f, 0.4f, 1),     // route grise
+        new Color(0.2f, 0.4f, 0.8f, 1),     // eau bleue
+        new Color(0.1f, 0.5f, 0.2f, 1),     // forêt vert foncé
+        new Color(0.9f, 0.8f, 0.5f, 1),     // sable beige
+        new Color(0.5f, 0.5f, 0.5f, 1));    // pierre gris clair
+
+    // Teintes distinguables en cas de daltonisme (palette d'Okabe-Ito)
+    public static final BiomePalette COLOR_BLIND = new BiomePalette("Daltonien",
+        new Color(0.0f, 0.62f, 0.45f, 1),   // herbe vert bleuté
+        new Color(0.35f, 0.35f, 0.35f, 1),  // route gris foncé
+        new Color(0.0f, 0.45f, 0.70f, 1),   // eau bleu
+        new Color(0.0f, 0.35f, 0.25f, 1),   // forêt vert très foncé
+        new Color(0.94f, 0.89f, 0.26f, 1),  // sable jaune
+        new Color(0.80f, 0.47f, 0.65f, 1)); // pierre rose
+
+    // Couleurs saturées pour repérer les frontières de biomes en debug
+    public static final BiomePalette DEBUG = new BiomePalette("Debug",
+        new Color(0, 1, 0, 1),              // herbe
+        new Color(1, 1, 1, 1),              // route
+        new Color(0, 0, 1, 1),              // eau
+        new Color(0, 0.4f, 0, 1),           // forêt
+        new Color(1, 1, 0, 1),              // sable
+        new Color(1, 0, 1, 1));             // pierre
+
+    private static final BiomePalette[] PRESETS = {DEFAULT, COLOR_BLIND, DEBUG};
+
+    private final String name;
+    private final Color[] colors;
+    private final float[] colorBits;
+
+    /**
+     * @param colors une couleur par type de tuile, dans l'ordre des constantes de DevMap
+     */
+    public BiomePalette(String name, Color... colors) {
+        if (colors.length != DevMap.TILE_TYPE_COUNT) {
+            throw new IllegalArgumentException("palette needs " + DevMap.TILE_TYPE_COUNT + " colors, got " + colors.length);
+        }
+
+        this.name = name;
+        this.colors = new Color[colors.length];
+        this.colorBits = new float[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            this.colors[i] = new Color(colors[i]); // copie privée : l'appelant peut réutiliser les siennes
+            this.colorBits[i] = colors[i].toFloatBits();
+        }
+    }
+
+    /**
+     * Couleur partagée du type de tuile (ne pas modifier)
+     */
+    public Color getColor(int tileType) {
+        return colors[index(tileType)];
+    }
+
+    /**
+     * Couleur empaquetée du type de tuile (format de Color.toFloatBits)
+     */
+    public float getColorBits(int tileType) {
+        return colorBits[index(tileType)];
+    }
+
+    // Type inconnu : herbe, comme l'ancien switch de DevMap.getTileColor
+    private int index(int tileType) {
+        return tileType >= 0 && tileType < colors.length ? tileType : DevMap.GRASS;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Palette prédéfinie suivante (pour les faire défiler en jeu)
+     */
+    public BiomePalette nextPreset() {
+        for (int i = 0; i < PRESETS.length; i++) {
+            if (PRESETS[i] == this) return PRESETS[(i + 1) % PRESETS.length];
+        }
+        return DEFAULT;
+    }
+
+    @Override
+    public String toString() {
+        return "BiomePalette [" + name + "]";
+    }
+}
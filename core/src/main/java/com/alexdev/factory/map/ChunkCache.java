@@ -0,0 +1,322 @@
+package com.alexdev.factory.map;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de chunks de tuiles placé devant DevMap.
+ * Chaque chunk contient CHUNK_SIZE x CHUNK_SIZE tuiles (un byte par tuile, ligne par ligne),
+ * indexé par ses coordonnées de chunk empaquetées dans un long.
+ *
+ * Deux niveaux de stockage :
+ * - chauds : tableaux de tuiles directement lisibles, au plus capacity chunks ;
+ * - froids : chunks chauds évincés, gardés sous forme compressée (CompressedChunk),
+ *   au plus coldCapacity chunks. Un chunk froid redevient chaud dès qu'on le lit.
+ * Les chunks les moins récemment utilisés de chaque niveau sont évincés au-delà de sa capacité.
+ */
+public class ChunkCache {
+
+    public static final int CHUNK_SHIFT = 5;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT; // 32 tuiles
+    public static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    public static final int CHUNK_AREA = CHUNK_SIZE * CHUNK_SIZE;
+
+    /**
+     * Prévenu quand une tuile est modifiée par setTile
+     */
+    public interface TileListener {
+        void tileChanged(int x, int y, int oldType, int newType);
+    }
+
+    private final DevMap map;
+    private final int capacity;
+    private final LinkedHashMap<Long, byte[]> chunks;
+    private final int coldCapacity;
+    private final LinkedHashMap<Long, CompressedChunk> coldChunks;
+    private long coldBytes; // taille compressée totale des chunks froids
+    private TileListener tileListener;
+
+    // Dernier chunk consulté (évite une recherche dans la map pour les accès consécutifs)
+    private long lastKey;
+    private byte[] lastChunk;
+
+    // Statistiques
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long demotions;
+    private long promotions;
+    private long promotionNanos;
+
+    public ChunkCache(DevMap map, int capacity) {
+        this(map, capacity, 0);
+    }
+
+    /**
+     * @param capacity nombre de chunks chauds (non compressés)
+     * @param coldCapacity nombre de chunks froids (compressés), 0 pour désactiver ce niveau
+     */
+    public ChunkCache(DevMap map, int capacity, int coldCapacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        if (coldCapacity < 0) throw new IllegalArgumentException("coldCapacity must be >= 0");
+        this.map = map;
+        this.capacity = capacity;
+        this.coldCapacity = coldCapacity;
+
+        // accessOrder = true : l'ordre d'itération suit l'ordre d'accès (LRU)
+        this.chunks = new LinkedHashMap<Long, byte[]>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if (size() <= ChunkCache.this.capacity) return false;
+
+                if (eldest.getValue() == lastChunk) {
+                    lastChunk = null;
+                }
+                demote(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+
+        this.coldChunks = new LinkedHashMap<Long, CompressedChunk>(Math.max(16, coldCapacity * 2), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompressedChunk> eldest) {
+                if (size() <= ChunkCache.this.coldCapacity) return false;
+
+                evictions++;
+                coldBytes -= eldest.getValue().getSizeInBytes();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Retourne le type de tuile à la position (x, y), en générant le chunk si besoin
+     */
+    public int getTile(int x, int y) {
+        byte[] chunk = getChunk(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        return chunk[tileIndex(x & CHUNK_MASK, y & CHUNK_MASK)];
+    }
+
+    /**
+     * Retourne les tuiles du chunk (cx, cy), ligne par ligne.
+     * Le tableau retourné appartient au cache et ne doit pas être modifié.
+     */
+    public byte[] getChunk(int cx, int cy) {
+        long key = chunkKey(cx, cy);
+        if (lastChunk != null && key == lastKey) {
+            hits++;
+            return lastChunk;
+        }
+
+        byte[] chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = promote(key);
+        }
+        if (chunk == null) {
+            misses++;
+            chunk = generateChunk(cx, cy);
+            chunks.put(key, chunk);
+        } else {
+            hits++;
+        }
+
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Retourne les tuiles du chunk (cx, cy) s'il est déjà en cache, sans jamais le générer
+     */
+    public byte[] getChunkIfPresent(int cx, int cy) {
+        long key = chunkKey(cx, cy);
+        if (lastChunk != null && key == lastKey) {
+            hits++;
+            return lastChunk;
+        }
+
+        byte[] chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = promote(key);
+        }
+        if (chunk == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Ajoute au cache un chunk généré ailleurs (par exemple par un thread de génération)
+     */
+    public void putChunk(int cx, int cy, byte[] tiles) {
+        if (tiles.length != CHUNK_AREA) throw new IllegalArgumentException("chunk must hold " + CHUNK_AREA + " tiles");
+
+        long key = chunkKey(cx, cy);
+        CompressedChunk cold = coldChunks.remove(key);
+        if (cold != null) {
+            coldBytes -= cold.getSizeInBytes();
+        }
+        chunks.put(key, tiles);
+        if (key == lastKey) {
+            lastChunk = tiles;
+        }
+    }
+
+    /**
+     * Modifie la tuile (x, y) dans la carte et dans le chunk en cache (modifié sur place).
+     * Les vues dérivées du chunk se reconstruisent d'après la révision de l'overlay.
+     */
+    public void setTile(int x, int y, int type) {
+        int oldType = map.getTile(x, y);
+        map.setTile(x, y, type);
+
+        long key = chunkKey(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        byte[] chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = promote(key);
+        }
+        if (chunk != null) {
+            chunk[tileIndex(x & CHUNK_MASK, y & CHUNK_MASK)] = (byte) type;
+        }
+        if (tileListener != null && oldType != type) {
+            tileListener.tileChanged(x, y, oldType, type);
+        }
+    }
+
+    public void setTileListener(TileListener tileListener) {
+        this.tileListener = tileListener;
+    }
+
+    public boolean contains(int cx, int cy) {
+        long key = chunkKey(cx, cy);
+        return chunks.containsKey(key) || coldChunks.containsKey(key);
+    }
+
+    /**
+     * Passe un chunk chaud évincé au niveau froid (ou l'abandonne si ce niveau est désactivé)
+     */
+    private void demote(long key, byte[] tiles) {
+        if (coldCapacity == 0) {
+            evictions++;
+            return;
+        }
+
+        CompressedChunk compressed = CompressedChunk.compress(tiles);
+        demotions++;
+        coldBytes += compressed.getSizeInBytes();
+        coldChunks.put(key, compressed);
+    }
+
+    /**
+     * Décompresse un chunk froid et le remet au niveau chaud
+     * @return les tuiles du chunk, ou null s'il n'est pas au niveau froid
+     */
+    private byte[] promote(long key) {
+        CompressedChunk compressed = coldChunks.remove(key);
+        if (compressed == null) return null;
+
+        long start = System.nanoTime();
+        coldBytes -= compressed.getSizeInBytes();
+        byte[] tiles = compressed.decompress();
+        promotions++;
+        promotionNanos += System.nanoTime() - start;
+
+        chunks.put(key, tiles); // peut refroidir le chunk chaud le plus ancien
+        return tiles;
+    }
+
+    /**
+     * Génère les tuiles d'un chunk à partir de la carte procédurale
+     */
+    private byte[] generateChunk(int cx, int cy) {
+        byte[] tiles = new byte[CHUNK_AREA];
+        map.fillTiles(cx << CHUNK_SHIFT, cy << CHUNK_SHIFT, CHUNK_SIZE, CHUNK_SIZE, tiles);
+        return tiles;
+    }
+
+    /**
+     * Vide le cache (les statistiques sont conservées)
+     */
+    public void clear() {
+        chunks.clear();
+        coldChunks.clear();
+        coldBytes = 0;
+        lastChunk = null;
+    }
+
+    public void resetStats() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        demotions = 0;
+        promotions = 0;
+        promotionNanos = 0;
+    }
+
+    // Getters
+    public DevMap getMap() { return map; }
+    public int getCapacity() { return capacity; }
+    public int getResidentChunks() { return chunks.size(); }
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public int getColdCapacity() { return coldCapacity; }
+    public int getColdChunks() { return coldChunks.size(); }
+    public long getColdBytes() { return coldBytes; }
+    public long getDemotions() { return demotions; }
+    public long getPromotions() { return promotions; }
+
+    /**
+     * Mémoire économisée par le niveau froid par rapport à des tableaux non compressés
+     */
+    public long getBytesSaved() {
+        return (long) coldChunks.size() * CHUNK_AREA - coldBytes;
+    }
+
+    /**
+     * Durée moyenne d'une promotion (décompression d'un chunk froid), en microsecondes
+     */
+    public float getAveragePromotionMicros() {
+        return promotions == 0 ? 0 : promotionNanos / 1000f / promotions;
+    }
+
+    public float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (float) hits / total;
+    }
+
+    /**
+     * Index d'une tuile dans le tableau d'un chunk (coordonnées locales)
+     */
+    public static int tileIndex(int localX, int localY) {
+        return (localY << CHUNK_SHIFT) | localX;
+    }
+
+    /**
+     * Empaquette les coordonnées d'un chunk dans un long
+     */
+    public static long chunkKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    public static int chunkX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int chunkY(long key) {
+        return (int) key;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkCache [" + chunks.size() + "/" + capacity + " hot, " + coldChunks.size() + "/" + coldCapacity +
+            " cold (" + (getBytesSaved() >> 10) + " KB saved), hits=" + hits + ", misses=" + misses +
+            ", promotions=" + promotions + String.format(" (%.1f us avg)", getAveragePromotionMicros()) +
+            ", evictions=" + evictions + "]";
+    }
+}
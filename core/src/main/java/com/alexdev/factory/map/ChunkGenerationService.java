@@ -0,0 +1,244 @@
+package com.alexdev.factory.map;
+
+import com.alexdev.factory.world.RegionStore;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Génère les chunks de DevMap en arrière-plan sur un pool de threads.
+ * Les chunks terminés sont publiés dans le ChunkCache par le thread de rendu
+ * (publishCompleted), qui ne bloque jamais : un chunk pas encore prêt
+ * est signalé par null et peut être dessiné avec getPlaceholderTile().
+ *
+ * Si un RegionStore est fourni, les chunks déjà enregistrés sont relus depuis le disque
+ * au lieu d'être régénérés, et les nouveaux chunks y sont enregistrés.
+ *
+ * Toutes les méthodes publiques doivent être appelées depuis le thread de rendu.
+ */
+public class ChunkGenerationService {
+
+    /**
+     * Prévenu sur le thread de rendu quand un chunk est publié dans le cache
+     */
+    public interface ChunkListener {
+        void chunkReady(int cx, int cy, byte[] tiles);
+    }
+
+    /**
+     * Chunk généré par un worker, en attente de publication
+     */
+    private static final class GeneratedChunk {
+        final int cx, cy;
+        final byte[] tiles; // null si la génération a été abandonnée
+
+        GeneratedChunk(int cx, int cy, byte[] tiles) {
+            this.cx = cx;
+            this.cy = cy;
+            this.tiles = tiles;
+        }
+    }
+
+    private final DevMap map;
+    private final ChunkCache cache;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private volatile RegionStore regionStore;
+    private ChunkListener listener;
+
+    // Chunks demandés et pas encore publiés (thread de rendu uniquement)
+    private final Set<Long> pending = new HashSet<>();
+    // File de publication workers -> thread de rendu
+    private final ConcurrentLinkedQueue<GeneratedChunk> completed = new ConcurrentLinkedQueue<>();
+
+    // Dernier centre d'intérêt connu, lu par les workers pour abandonner les chunks devenus lointains
+    private volatile int focusChunkX;
+    private volatile int focusChunkY;
+    private volatile int dropDistance = Integer.MAX_VALUE;
+
+    // Statistiques
+    private long generated;
+    private long dropped;
+
+    public ChunkGenerationService(ChunkCache cache, int threads, int maxPending) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.map = cache.getMap();
+        this.cache = cache;
+        this.maxPending = maxPending;
+        this.executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+    }
+
+    /**
+     * Crée un service avec un worker par cœur disponible (moins le thread de rendu)
+     */
+    public ChunkGenerationService(ChunkCache cache) {
+        this(cache, Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 256);
+    }
+
+    /**
+     * Retourne les tuiles du chunk s'il est prêt, sinon demande sa génération et retourne null
+     */
+    public byte[] getChunk(int cx, int cy) {
+        byte[] tiles = cache.getChunkIfPresent(cx, cy);
+        if (tiles == null) {
+            request(cx, cy);
+        }
+        return tiles;
+    }
+
+    /**
+     * Demande la génération du chunk (cx, cy) s'il n'est ni en cache ni déjà demandé
+     * @return true si une nouvelle tâche a été soumise
+     */
+    public boolean request(final int cx, final int cy) {
+        if (pending.size() >= maxPending) return false;
+
+        Long key = ChunkCache.chunkKey(cx, cy);
+        if (pending.contains(key) || cache.contains(cx, cy)) return false;
+
+        pending.add(key);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Chunk devenu trop lointain entre la demande et l'exécution : on l'abandonne
+                if (Math.abs(cx - focusChunkX) > dropDistance || Math.abs(cy - focusChunkY) > dropDistance) {
+                    completed.add(new GeneratedChunk(cx, cy, null));
+                    return;
+                }
+
+                byte[] tiles = new byte[ChunkCache.CHUNK_AREA];
+                RegionStore store = regionStore;
+                if (store == null || !store.readTiles(cx, cy, tiles)) {
+                    // Terrain procédural seul : les modifications sont appliquées à la publication
+                    map.fillBaseTiles(cx << ChunkCache.CHUNK_SHIFT, cy << ChunkCache.CHUNK_SHIFT,
+                        ChunkCache.CHUNK_SIZE, ChunkCache.CHUNK_SIZE, tiles);
+                    if (store != null) store.writeTiles(cx, cy, tiles);
+                }
+                completed.add(new GeneratedChunk(cx, cy, tiles));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Pré-génère les chunks autour de la position où sera le joueur dans lookAhead secondes
+     * @param tileX position actuelle (en tuiles)
+     * @param tileY position actuelle (en tuiles)
+     * @param velocityX vitesse en tuiles par seconde
+     * @param velocityY vitesse en tuiles par seconde
+     * @param lookAhead horizon de prédiction en secondes
+     * @param radius rayon (en chunks) à préparer autour de la position prédite
+     */
+    public void prefetch(float tileX, float tileY, float velocityX, float velocityY,
+                         float lookAhead, int radius) {
+        int currentX = GradientNoise.floor(tileX) >> ChunkCache.CHUNK_SHIFT;
+        int currentY = GradientNoise.floor(tileY) >> ChunkCache.CHUNK_SHIFT;
+        int predictedX = GradientNoise.floor(tileX + velocityX * lookAhead) >> ChunkCache.CHUNK_SHIFT;
+        int predictedY = GradientNoise.floor(tileY + velocityY * lookAhead) >> ChunkCache.CHUNK_SHIFT;
+
+        focusChunkX = currentX;
+        focusChunkY = currentY;
+        dropDistance = radius + Math.max(Math.abs(predictedX - currentX), Math.abs(predictedY - currentY)) + 2;
+
+        // Du centre vers l'extérieur pour servir d'abord les chunks les plus proches de la cible
+        for (int r = 0; r <= radius; r++) {
+            for (int cx = predictedX - r; cx <= predictedX + r; cx++) {
+                for (int cy = predictedY - r; cy <= predictedY + r; cy++) {
+                    if (Math.abs(cx - predictedX) == r || Math.abs(cy - predictedY) == r) {
+                        request(cx, cy);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Publie dans le cache les chunks terminés par les workers
+     * @param maxChunks nombre maximal de chunks publiés par appel (budget par frame)
+     * @return nombre de chunks publiés
+     */
+    public int publishCompleted(int maxChunks) {
+        int published = 0;
+        GeneratedChunk chunk;
+        while (published < maxChunks && (chunk = completed.poll()) != null) {
+            pending.remove(ChunkCache.chunkKey(chunk.cx, chunk.cy));
+
+            if (chunk.tiles == null) {
+                dropped++;
+                continue;
+            }
+
+            // Appliquées ici (thread de rendu) pour inclure les modifications faites pendant la génération
+            map.getOverlay().apply(chunk.cx, chunk.cy, chunk.tiles);
+            cache.putChunk(chunk.cx, chunk.cy, chunk.tiles);
+            if (listener != null) listener.chunkReady(chunk.cx, chunk.cy, chunk.tiles);
+            generated++;
+            published++;
+        }
+        return published;
+    }
+
+    /**
+     * Tuile représentative d'un chunk pas encore généré : une seule évaluation
+     * au centre du chunk, pour dessiner un aplat à la place de ses tuiles
+     */
+    public int getPlaceholderTile(int cx, int cy) {
+        int half = ChunkCache.CHUNK_SIZE / 2;
+        return map.getTile((cx << ChunkCache.CHUNK_SHIFT) + half, (cy << ChunkCache.CHUNK_SHIFT) + half);
+    }
+
+    /**
+     * Active la persistance des chunks (null pour la désactiver)
+     */
+    public void setRegionStore(RegionStore regionStore) {
+        this.regionStore = regionStore;
+    }
+
+    public void setChunkListener(ChunkListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Arrête les workers et attend la fin de ceux en cours : une fois la méthode terminée,
+     * plus aucun n'écrit dans le RegionStore, qui peut alors être enregistré et fermé.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Chunk generation workers still running after 5 s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        completed.clear();
+        pending.clear();
+    }
+
+    // Getters
+    public ChunkCache getCache() { return cache; }
+    public int getPendingCount() { return pending.size(); }
+    public long getGeneratedCount() { return generated; }
+    public long getDroppedCount() { return dropped; }
+
+    /**
+     * Threads démons nommés, pour ne pas empêcher la fermeture du jeu
+     */
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "chunk-gen-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
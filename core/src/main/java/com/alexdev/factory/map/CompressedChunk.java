@@ -0,0 +1,152 @@
+package com.alexdev.factory.map;
+
+import java.util.Arrays;
+
+/**
+ * Forme compacte d'un chunk de tuiles, pour les chunks froids du ChunkCache.
+ * Deux encodages sont essayés et le plus petit est gardé :
+ * - palette : liste des types présents, puis un index de bits bits par tuile
+ *   (0 bit si le chunk est uniforme) ;
+ * - RLE : suites (type, longueur - 1) dans l'ordre des tuiles, efficace sur les grandes
+ *   zones d'un même biome coupées par les routes.
+ */
+public final class CompressedChunk {
+
+    private static final byte FORMAT_PALETTE = 0;
+    private static final byte FORMAT_RLE = 1;
+
+    // Surcoût mémoire approximatif d'un chunk compressé (en-têtes d'objet et de tableau, référence)
+    private static final int OBJECT_OVERHEAD = 32;
+
+    private final byte[] data;
+
+    private CompressedChunk(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Compresse les tuiles d'un chunk (CHUNK_AREA tuiles, types entre 0 et 255)
+     */
+    public static CompressedChunk compress(byte[] tiles) {
+        byte[] palette = encodePalette(tiles);
+        byte[] rle = encodeRle(tiles, palette.length);
+        return new CompressedChunk(rle != null ? rle : palette);
+    }
+
+    /**
+     * Décompresse les tuiles dans out (CHUNK_AREA tuiles)
+     */
+    public void decompress(byte[] out) {
+        if (data[0] == FORMAT_RLE) {
+            int position = 0;
+            for (int i = 1; i < data.length; i += 2) {
+                int end = position + (data[i + 1] & 0xFF) + 1;
+                byte value = data[i];
+                while (position < end) out[position++] = value;
+            }
+            return;
+        }
+
+        int paletteSize = (data[1] & 0xFF) + 1;
+        int bits = bitsFor(paletteSize);
+        if (bits == 0) {
+            Arrays.fill(out, 0, ChunkCache.CHUNK_AREA, data[2]);
+            return;
+        }
+
+        int mask = (1 << bits) - 1;
+        int offset = 2 + paletteSize;
+        int bitPosition = 0;
+        for (int i = 0; i < ChunkCache.CHUNK_AREA; i++) {
+            int byteIndex = offset + (bitPosition >> 3);
+            int shift = bitPosition & 7;
+            int word = data[byteIndex] & 0xFF;
+            if (shift + bits > 8) word |= (data[byteIndex + 1] & 0xFF) << 8;
+            out[i] = data[2 + ((word >> shift) & mask)];
+            bitPosition += bits;
+        }
+    }
+
+    public byte[] decompress() {
+        byte[] tiles = new byte[ChunkCache.CHUNK_AREA];
+        decompress(tiles);
+        return tiles;
+    }
+
+    /**
+     * Taille mémoire approximative de la forme compressée
+     */
+    public int getSizeInBytes() {
+        return data.length + OBJECT_OVERHEAD;
+    }
+
+    public boolean isRunLength() {
+        return data[0] == FORMAT_RLE;
+    }
+
+    /**
+     * [format][taille de palette - 1][palette...][index bit-packés, poids faibles d'abord]
+     */
+    private static byte[] encodePalette(byte[] tiles) {
+        int[] slotOfType = new int[256];
+        Arrays.fill(slotOfType, -1);
+        byte[] palette = new byte[256];
+        int paletteSize = 0;
+        for (byte tile : tiles) {
+            if (slotOfType[tile & 0xFF] < 0) {
+                slotOfType[tile & 0xFF] = paletteSize;
+                palette[paletteSize++] = tile;
+            }
+        }
+
+        int bits = bitsFor(paletteSize);
+        int offset = 2 + paletteSize;
+        byte[] data = new byte[offset + (ChunkCache.CHUNK_AREA * bits + 7) / 8];
+        data[0] = FORMAT_PALETTE;
+        data[1] = (byte) (paletteSize - 1);
+        System.arraycopy(palette, 0, data, 2, paletteSize);
+        if (bits == 0) return data;
+
+        int bitPosition = 0;
+        for (byte tile : tiles) {
+            int value = slotOfType[tile & 0xFF] << (bitPosition & 7);
+            int byteIndex = offset + (bitPosition >> 3);
+            data[byteIndex] |= (byte) value;
+            if (value > 0xFF) data[byteIndex + 1] |= (byte) (value >> 8);
+            bitPosition += bits;
+        }
+        return data;
+    }
+
+    /**
+     * [format][type, longueur - 1]... ; null si le résultat dépasse limit octets
+     */
+    private static byte[] encodeRle(byte[] tiles, int limit) {
+        byte[] buffer = new byte[limit];
+        buffer[0] = FORMAT_RLE;
+        int length = 1;
+
+        int i = 0;
+        while (i < tiles.length) {
+            byte value = tiles[i];
+            int run = 1;
+            while (i + run < tiles.length && tiles[i + run] == value && run < 256) run++;
+
+            if (length + 2 > limit) return null;
+            buffer[length++] = value;
+            buffer[length++] = (byte) (run - 1);
+            i += run;
+        }
+
+        byte[] data = new byte[length];
+        System.arraycopy(buffer, 0, data, 0, length);
+        return data;
+    }
+
+    /**
+     * Nombre de bits nécessaires pour indexer une palette de taille size
+     */
+    private static int bitsFor(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
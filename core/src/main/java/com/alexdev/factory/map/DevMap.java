@@ -2,20 +2,48 @@ package com.alexdev.factory.map;
 
 import com.badlogic.gdx.graphics.Color;
 
+import java.util.Arrays;
+
 public class DevMap {
 
     private final long seed;
+    private final GradientNoise perlin;
+    private volatile BiomePalette palette = BiomePalette.DEFAULT;
+    private final TileOverlay overlay = new TileOverlay();
 
     // Biomes constants
-    private static final int GRASS = 0;
-    private static final int ROAD = 1;
-    private static final int WATER = 2;
-    private static final int FOREST = 3;
-    private static final int SAND = 4;
-    private static final int STONE = 5;
+    public static final int GRASS = 0;
+    public static final int ROAD = 1;
+    public static final int WATER = 2;
+    public static final int FOREST = 3;
+    public static final int SAND = 4;
+    public static final int STONE = 5;
+
+    public static final int TILE_TYPE_COUNT = 6;
+
+    // Noms des types de tuile (fichiers de données), dans l'ordre des constantes
+    private static final String[] TILE_NAMES = {"grass", "road", "water", "forest", "sand", "stone"};
 
     public DevMap(long seed) {
         this.seed = seed;
+        this.perlin = new GradientNoise(seed);
+    }
+
+    /**
+     * Nom du type de tuile (en minuscules), ou "unknown"
+     */
+    public static String tileName(int tileType) {
+        return tileType >= 0 && tileType < TILE_NAMES.length ? TILE_NAMES[tileType] : "unknown";
+    }
+
+    /**
+     * Type de tuile d'un nom (sans tenir compte de la casse), ou -1
+     */
+    public static int tileTypeOf(String name) {
+        for (int tileType = 0; tileType < TILE_NAMES.length; tileType++) {
+            if (TILE_NAMES[tileType].equalsIgnoreCase(name)) return tileType;
+        }
+        return -1;
     }
 
     /**
@@ -23,111 +51,151 @@ public class DevMap {
      * 0 = herbe, 1 = route, 2 = eau, 3 = forêt, 4 = sable, 5 = pierre
      */
     public int getTile(int x, int y) {
+        // Tuile modifiée par un joueur
+        int modified = overlay.get(x, y);
+        if (modified != TileOverlay.NONE) return modified;
+        return getBaseTile(x, y);
+    }
+
+    /**
+     * Comme getTile, mais sans les modifications des joueurs (terrain procédural seul)
+     */
+    public int getBaseTile(int x, int y) {
+        // Routes horizontales et verticales (testées avant le bruit, inutile de l'évaluer)
+        if (isRoadLine(x) || isRoadLine(y)) return ROAD;
+
         // Utilisation de plusieurs octaves de bruit pour plus de variété
         float noise = perlinNoise(x * 0.05f, y * 0.05f);
         float detailNoise = perlinNoise(x * 0.2f, y * 0.2f) * 0.3f;
         float finalNoise = noise + detailNoise;
 
-        // Routes horizontales et verticales
-        boolean isRoadX = (x % 64 == 0 || x % 64 == 1);
-        boolean isRoadY = (y % 64 == 0 || y % 64 == 1);
-        if (isRoadX || isRoadY) return ROAD;
+        return classify(finalNoise);
+    }
 
-        // Génération de biomes basée sur le bruit
-        if (finalNoise < -0.3f) return WATER;
-        if (finalNoise < -0.1f) return SAND;
-        if (finalNoise < 0.2f) return GRASS;
-        if (finalNoise < 0.5f) return FOREST;
-        return STONE;
+    /**
+     * Remplit out (ligne par ligne, out[j * w + i] = tuile (x0 + i, y0 + j))
+     * avec les tuiles de la région [x0, x0 + w) x [y0, y0 + h).
+     * Même résultat que getTile() pour chaque tuile, mais les gradients sont partagés
+     * entre tuiles voisines et le test de route est sorti de la boucle interne.
+     */
+    public void fillTiles(int x0, int y0, int w, int h, byte[] out) {
+        fillBaseTiles(x0, y0, w, h, out);
+        overlay.apply(x0, y0, w, h, out);
     }
 
     /**
-     * Implémentation simplifiée de Perlin Noise
+     * Comme fillTiles, mais sans les modifications des joueurs (terrain procédural seul)
      */
-    private float perlinNoise(float x, float y) {
-        // Coordonnées de la cellule
-        int x0 = (int) Math.floor(x);
-        int x1 = x0 + 1;
-        int y0 = (int) Math.floor(y);
-        int y1 = y0 + 1;
+    public void fillBaseTiles(int x0, int y0, int w, int h, byte[] out) {
+        if (w < 0 || h < 0) throw new IllegalArgumentException("negative region size");
+        if (out.length < w * h) throw new IllegalArgumentException("out is too small for a " + w + "x" + h + " region");
+
+        // Colonnes de route : identiques pour toutes les lignes
+        boolean[] roadColumn = new boolean[w];
+        for (int i = 0; i < w; i++) {
+            roadColumn[i] = isRoadLine(x0 + i);
+        }
 
-        // Poids d'interpolation
-        float sx = x - x0;
-        float sy = y - y0;
+        // Termes par colonne des deux octaves
+        GradientNoise.Columns baseColumns = new GradientNoise.Columns(x0, w, 0.05f);
+        GradientNoise.Columns detailColumns = new GradientNoise.Columns(x0, w, 0.2f);
 
-        // Lissage avec une fonction ease
-        sx = fade(sx);
-        sy = fade(sy);
+        float[] row = new float[w];
+        for (int j = 0; j < h; j++) {
+            int y = y0 + j;
+            int offset = j * w;
 
-        // Gradients aux coins
-        float n0 = dotGridGradient(x0, y0, x, y);
-        float n1 = dotGridGradient(x1, y0, x, y);
-        float ix0 = lerp(n0, n1, sx);
+            // Ligne entière de route : pas de bruit à évaluer
+            if (isRoadLine(y)) {
+                Arrays.fill(out, offset, offset + w, (byte) ROAD);
+                continue;
+            }
 
-        n0 = dotGridGradient(x0, y1, x, y);
-        n1 = dotGridGradient(x1, y1, x, y);
-        float ix1 = lerp(n0, n1, sx);
+            Arrays.fill(row, 0);
+            perlin.addRow(baseColumns, y, 1f, row);
+            perlin.addRow(detailColumns, y, 0.3f, row);
 
-        return lerp(ix0, ix1, sy);
+            for (int i = 0; i < w; i++) {
+                out[offset + i] = (byte) (roadColumn[i] ? ROAD : classify(row[i]));
+            }
+        }
     }
 
     /**
-     * Calcul du produit scalaire entre gradient et vecteur distance
+     * Modifie la tuile (x, y) (construction, pavage...). Les chunks déjà en cache
+     * ne sont pas mis à jour : passer par ChunkCache.setTile pour cela.
      */
-    private float dotGridGradient(int ix, int iy, float x, float y) {
-        // Gradient pseudo-aléatoire basé sur la position
-        float[] gradient = getGradient(ix, iy);
+    public void setTile(int x, int y, int type) {
+        overlay.set(x, y, type);
+    }
 
-        // Vecteur distance
-        float dx = x - ix;
-        float dy = y - iy;
+    /**
+     * Rend à la tuile (x, y) son type procédural
+     */
+    public void resetTile(int x, int y) {
+        overlay.reset(x, y);
+    }
 
-        return dx * gradient[0] + dy * gradient[1];
+    /**
+     * Vrai si la colonne (ou ligne) de coordonnée c porte une route.
+     * Équivaut à (c % 64 == 0 || c % 64 == 1) sans division.
+     */
+    private static boolean isRoadLine(int c) {
+        int m = c & 63;
+        return m == 0 || (m == 1 && c > 0);
     }
 
     /**
-     * Génère un gradient pseudo-aléatoire pour une cellule
+     * Génération de biomes basée sur le bruit
      */
-    private float[] getGradient(int x, int y) {
-        // Hash basé sur la position et le seed
-        long hash = x * 374761393L + y * 668265263L + seed;
-        hash = (hash ^ (hash >> 13)) * 1274126177L;
+    private static int classify(float finalNoise) {
+        if (finalNoise < -0.3f) return WATER;
+        if (finalNoise < -0.1f) return SAND;
+        if (finalNoise < 0.2f) return GRASS;
+        if (finalNoise < 0.5f) return FOREST;
+        return STONE;
+    }
 
-        // Angle pseudo-aléatoire
-        float angle = (hash & 0xFFFF) / (float) 0xFFFF * (float) Math.PI * 2;
+    /**
+     * Bruit de Perlin (tables de gradients précalculées, sans allocation)
+     */
+    private float perlinNoise(float x, float y) {
+        return perlin.noise(x, y);
+    }
 
-        return new float[]{
-            (float) Math.cos(angle),
-            (float) Math.sin(angle)
-        };
+    /**
+     * Retourne la couleur de la tuile pour le rendu.
+     * La couleur vient de la palette courante et est partagée : ne pas la modifier.
+     */
+    public Color getTileColor(int tileType) {
+        return palette.getColor(tileType);
     }
 
     /**
-     * Fonction d'interpolation lisse
+     * Retourne la couleur empaquetée (float bits) de la tuile, pour les sommets
      */
-    private float lerp(float a, float b, float t) {
-        return a + t * (b - a);
+    public float getTileColorBits(int tileType) {
+        return palette.getColorBits(tileType);
+    }
+
+    public BiomePalette getPalette() {
+        return palette;
     }
 
     /**
-     * Fonction de lissage (ease curve)
+     * Change la palette des biomes (daltonisme, debug...). Les meshes déjà construits
+     * sont reconstruits au prochain rendu.
      */
-    private float fade(float t) {
-        return t * t * t * (t * (t * 6 - 15) + 10);
+    public void setPalette(BiomePalette palette) {
+        if (palette == null) throw new IllegalArgumentException("palette cannot be null");
+        this.palette = palette;
     }
 
     /**
-     * Retourne la couleur de la tuile pour le rendu
+     * Modifications des joueurs appliquées par getTile et fillTiles
      */
-    public Color getTileColor(int tileType) {
-        switch (tileType) {
-            case ROAD:   return new Color(0.4f, 0.4f, 0.4f, 1);      // route grise
-            case WATER:  return new Color(0.2f, 0.4f, 0.8f, 1);      // eau bleue
-            case FOREST: return new Color(0.1f, 0.5f, 0.2f, 1);      // forêt vert foncé
-            case SAND:   return new Color(0.9f, 0.8f, 0.5f, 1);      // sable beige
-            case STONE:  return new Color(0.5f, 0.5f, 0.5f, 1);      // pierre gris clair
-            default:     return new Color(0.3f, 0.7f, 0.3f, 1);      // herbe vert
-        }
+    public TileOverlay getOverlay() {
+        return overlay;
     }
 
     /**
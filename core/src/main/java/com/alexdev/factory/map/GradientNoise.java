@@ -0,0 +1,183 @@
+package com.alexdev.factory.map;
+
+/**
+ * Bruit de Perlin 2D sans allocation.
+ * Les gradients sont lus dans une table précalculée indexée par le hash (16 bits)
+ * de la cellule, au lieu d'appeler cos/sin et d'allouer un tableau à chaque coin.
+ * Les valeurs sont identiques bit pour bit à l'ancienne implémentation de DevMap.
+ */
+public final class GradientNoise {
+
+    private static final int GRADIENT_COUNT = 0x10000;
+
+    // Gradients entrelacés : [gx0, gy0, gx1, gy1, ...]
+    private static final float[] GRADIENTS = new float[GRADIENT_COUNT * 2];
+
+    static {
+        for (int i = 0; i < GRADIENT_COUNT; i++) {
+            // Même formule (et même ordre d'évaluation) que l'ancien getGradient()
+            float angle = i / (float) 0xFFFF * (float) Math.PI * 2;
+            GRADIENTS[i * 2] = (float) Math.cos(angle);
+            GRADIENTS[i * 2 + 1] = (float) Math.sin(angle);
+        }
+    }
+
+    private final long seed;
+
+    public GradientNoise(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Évalue le bruit au point (x, y), résultat dans [-1, 1] environ
+     */
+    public float noise(float x, float y) {
+        // Coordonnées de la cellule
+        int x0 = floor(x);
+        int y0 = floor(y);
+        int x1 = x0 + 1;
+        int y1 = y0 + 1;
+
+        // Poids d'interpolation lissés
+        float sx = fade(x - x0);
+        float sy = fade(y - y0);
+
+        // Vecteurs distance aux coins
+        float dx0 = x - x0;
+        float dx1 = x - x1;
+        float dy0 = y - y0;
+        float dy1 = y - y1;
+
+        int g = gradientIndex(x0, y0);
+        float n0 = dx0 * GRADIENTS[g] + dy0 * GRADIENTS[g + 1];
+        g = gradientIndex(x1, y0);
+        float n1 = dx1 * GRADIENTS[g] + dy0 * GRADIENTS[g + 1];
+        float ix0 = lerp(n0, n1, sx);
+
+        g = gradientIndex(x0, y1);
+        n0 = dx0 * GRADIENTS[g] + dy1 * GRADIENTS[g + 1];
+        g = gradientIndex(x1, y1);
+        n1 = dx1 * GRADIENTS[g] + dy1 * GRADIENTS[g + 1];
+        float ix1 = lerp(n0, n1, sx);
+
+        return lerp(ix0, ix1, sy);
+    }
+
+    /**
+     * Termes d'un octave qui ne dépendent que de la colonne x.
+     * Calculés une seule fois pour une région, puis partagés par toutes ses lignes.
+     */
+    public static final class Columns {
+        final int x0;
+        final int width;
+        final float frequency;
+        final int[] cell;
+        final float[] fade;
+        final float[] dx0;
+        final float[] dx1;
+
+        public Columns(int x0, int width, float frequency) {
+            this.x0 = x0;
+            this.width = width;
+            this.frequency = frequency;
+            this.cell = new int[width];
+            this.fade = new float[width];
+            this.dx0 = new float[width];
+            this.dx1 = new float[width];
+
+            for (int i = 0; i < width; i++) {
+                float fx = (x0 + i) * frequency;
+                int cx0 = floor(fx);
+                cell[i] = cx0;
+                fade[i] = fade(fx - cx0);
+                dx0[i] = fx - cx0;
+                dx1[i] = fx - (cx0 + 1);
+            }
+        }
+    }
+
+    /**
+     * Ajoute amplitude * bruit(x * frequency, y * frequency) à out[i] pour x = x0 + i sur la ligne y.
+     * Les gradients et leurs produits avec la distance verticale ne sont recalculés
+     * que quand la ligne change de cellule : ils sont partagés par les tuiles voisines.
+     * Le résultat est identique à celui de noise() point par point.
+     */
+    public void addRow(Columns columns, int y, float amplitude, float[] out) {
+        float fy = y * columns.frequency;
+        int y0 = floor(fy);
+        int y1 = y0 + 1;
+        float sy = fade(fy - y0);
+        float dy0 = fy - y0;
+        float dy1 = fy - y1;
+
+        int[] cell = columns.cell;
+        float[] fade = columns.fade;
+        float[] dx0 = columns.dx0;
+        float[] dx1 = columns.dx1;
+
+        int cellX = 0;
+        float g00x = 0, g10x = 0, g01x = 0, g11x = 0;
+        float a00 = 0, a10 = 0, a01 = 0, a11 = 0;
+
+        for (int i = 0; i < columns.width; i++) {
+            int cx0 = cell[i];
+            if (i == 0 || cx0 != cellX) {
+                int cx1 = cx0 + 1;
+                int g = gradientIndex(cx0, y0);
+                g00x = GRADIENTS[g];
+                a00 = dy0 * GRADIENTS[g + 1];
+                g = gradientIndex(cx1, y0);
+                g10x = GRADIENTS[g];
+                a10 = dy0 * GRADIENTS[g + 1];
+                g = gradientIndex(cx0, y1);
+                g01x = GRADIENTS[g];
+                a01 = dy1 * GRADIENTS[g + 1];
+                g = gradientIndex(cx1, y1);
+                g11x = GRADIENTS[g];
+                a11 = dy1 * GRADIENTS[g + 1];
+                cellX = cx0;
+            }
+
+            float sx = fade[i];
+            float ix0 = lerp(dx0[i] * g00x + a00, dx1[i] * g10x + a10, sx);
+            float ix1 = lerp(dx0[i] * g01x + a01, dx1[i] * g11x + a11, sx);
+            out[i] += lerp(ix0, ix1, sy) * amplitude;
+        }
+    }
+
+    /**
+     * Position du gradient de la cellule (x, y) dans la table
+     */
+    private int gradientIndex(int x, int y) {
+        // Hash basé sur la position et le seed
+        long hash = x * 374761393L + y * 668265263L + seed;
+        hash = (hash ^ (hash >> 13)) * 1274126177L;
+        return (int) (hash & 0xFFFF) << 1;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Partie entière inférieure, sans passer par Math.floor(double)
+     */
+    static int floor(float v) {
+        int i = (int) v;
+        return v < i ? i - 1 : i;
+    }
+
+    /**
+     * Fonction d'interpolation lisse
+     */
+    static float lerp(float a, float b, float t) {
+        return a + t * (b - a);
+    }
+
+    /**
+     * Fonction de lissage (ease curve)
+     */
+    static float fade(float t) {
+        return t * t * t * (t * (t * 6 - 15) + 10);
+    }
+}
@@ -0,0 +1,392 @@
+package com.alexdev.factory.map;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modifications des joueurs posées sur le terrain procédural (construction, pavage, assèchement...).
+ * Creux par chunk : un chunk jamais modifié n'a pas d'entrée. Un chunk modifié garde
+ * un bitset de ses tuiles modifiées (long[16] pour 1024 tuiles) et les nouvelles valeurs
+ * rangées dans l'ordre des bits (la valeur d'une tuile est à l'indice du rang de son bit).
+ * La mémoire et la taille de sauvegarde suivent donc le nombre de tuiles modifiées.
+ *
+ * Chaque chunk modifié a une révision, qui change à chaque modification : les caches
+ * construits à partir de ses tuiles (niveaux de détail, meshes) s'en servent pour se reconstruire.
+ *
+ * Lectures et écritures possibles depuis plusieurs threads. Les chunks modifiés sont rangés
+ * dans une table à clés long sans boîtes (ChunkTable), remplacée en entier quand un chunk
+ * y entre (rare) : une lecture ne prend aucun verrou et n'alloue rien pour trouver son chunk.
+ */
+public class TileOverlay {
+
+    /** Valeur retournée par get() pour une tuile non modifiée */
+    public static final int NONE = -1;
+
+    private static final int FILE_MAGIC = 0x544F564C; // "TOVL"
+    private static final int FILE_VERSION = 1;
+    private static final int WORDS = ChunkCache.CHUNK_AREA / 64;
+
+    /**
+     * Modifications d'un chunk
+     */
+    private static final class ChunkEdits {
+        final long[] modified = new long[WORDS];
+        byte[] values = new byte[4];
+        int count;
+        volatile int revision;
+
+        /**
+         * Rang du bit index parmi les bits à 1 (indice de sa valeur dans values)
+         */
+        int rank(int index) {
+            int word = index >> 6;
+            int rank = Long.bitCount(modified[word] & ((1L << (index & 63)) - 1));
+            for (int w = 0; w < word; w++) rank += Long.bitCount(modified[w]);
+            return rank;
+        }
+
+        boolean isModified(int index) {
+            return (modified[index >> 6] & (1L << (index & 63))) != 0;
+        }
+    }
+
+    /**
+     * Table immuable chunk -> modifications : adressage ouvert, sondage linéaire.
+     * Une case vide a une valeur null (la clé 0 est donc une clé ordinaire).
+     */
+    private static final class ChunkTable {
+        static final ChunkTable EMPTY = new ChunkTable(8);
+
+        final long[] keys;
+        final ChunkEdits[] values;
+        final int mask;
+        int size;
+
+        ChunkTable(int capacity) {
+            keys = new long[capacity];
+            values = new ChunkEdits[capacity];
+            mask = capacity - 1;
+        }
+
+        ChunkEdits get(long key) {
+            int slot = slot(key);
+            ChunkEdits edits;
+            while ((edits = values[slot]) != null) {
+                if (keys[slot] == key) return edits;
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        /**
+         * Copie de la table avec une entrée de plus (agrandie au-delà de la moitié de remplissage)
+         */
+        ChunkTable with(long key, ChunkEdits edits) {
+            int capacity = (size + 1) * 2 > keys.length ? keys.length << 1 : keys.length;
+            ChunkTable copy = new ChunkTable(capacity);
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null) copy.insert(keys[i], values[i]);
+            }
+            copy.insert(key, edits);
+            return copy;
+        }
+
+        private void insert(long key, ChunkEdits edits) {
+            int slot = slot(key);
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            values[slot] = edits;
+            size++;
+        }
+
+        private int slot(long key) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+    // Remplacée (jamais modifiée) sous le verrou de l'overlay
+    private volatile ChunkTable chunks = ChunkTable.EMPTY;
+
+    // Compteur global : une révision n'est jamais réutilisée, même après clear()
+    private final AtomicInteger revisions = new AtomicInteger();
+
+    /**
+     * Type de la tuile (x, y) si elle a été modifiée, sinon NONE
+     */
+    public int get(int x, int y) {
+        ChunkTable table = chunks;
+        if (table.size == 0) return NONE;
+
+        ChunkEdits edits = table.get(ChunkCache.chunkKey(x >> ChunkCache.CHUNK_SHIFT, y >> ChunkCache.CHUNK_SHIFT));
+        if (edits == null) return NONE;
+
+        int index = ChunkCache.tileIndex(x & ChunkCache.CHUNK_MASK, y & ChunkCache.CHUNK_MASK);
+        synchronized (edits) {
+            return edits.isModified(index) ? edits.values[edits.rank(index)] : NONE;
+        }
+    }
+
+    /**
+     * Remplace le type de la tuile (x, y)
+     */
+    public void set(int x, int y, int type) {
+        if (type < 0 || type > Byte.MAX_VALUE) throw new IllegalArgumentException("invalid tile type " + type);
+
+        long key = ChunkCache.chunkKey(x >> ChunkCache.CHUNK_SHIFT, y >> ChunkCache.CHUNK_SHIFT);
+        ChunkEdits edits = chunks.get(key);
+        if (edits == null) edits = addChunk(key);
+
+        int index = ChunkCache.tileIndex(x & ChunkCache.CHUNK_MASK, y & ChunkCache.CHUNK_MASK);
+        synchronized (edits) {
+            int rank = edits.rank(index);
+            if (edits.isModified(index)) {
+                if (edits.values[rank] == type) return;
+                edits.values[rank] = (byte) type;
+            } else {
+                if (edits.count == edits.values.length) {
+                    byte[] grown = new byte[Math.min(ChunkCache.CHUNK_AREA, edits.count * 2)];
+                    System.arraycopy(edits.values, 0, grown, 0, edits.count);
+                    edits.values = grown;
+                }
+                System.arraycopy(edits.values, rank, edits.values, rank + 1, edits.count - rank);
+                edits.values[rank] = (byte) type;
+                edits.count++;
+                edits.modified[index >> 6] |= 1L << (index & 63);
+            }
+            edits.revision = revisions.incrementAndGet();
+        }
+    }
+
+    private synchronized ChunkEdits addChunk(long key) {
+        ChunkEdits edits = chunks.get(key);
+        if (edits == null) {
+            edits = new ChunkEdits();
+            chunks = chunks.with(key, edits);
+        }
+        return edits;
+    }
+
+    /**
+     * Annule la modification de la tuile (x, y), qui redevient procédurale
+     * @return false si la tuile n'était pas modifiée
+     */
+    public boolean reset(int x, int y) {
+        ChunkEdits edits = chunks.get(ChunkCache.chunkKey(x >> ChunkCache.CHUNK_SHIFT, y >> ChunkCache.CHUNK_SHIFT));
+        if (edits == null) return false;
+
+        int index = ChunkCache.tileIndex(x & ChunkCache.CHUNK_MASK, y & ChunkCache.CHUNK_MASK);
+        synchronized (edits) {
+            if (!edits.isModified(index)) return false;
+
+            int rank = edits.rank(index);
+            System.arraycopy(edits.values, rank + 1, edits.values, rank, edits.count - rank - 1);
+            edits.count--;
+            edits.modified[index >> 6] &= ~(1L << (index & 63));
+            // L'entrée est gardée (même vide) pour que sa révision continue d'avancer
+            edits.revision = revisions.incrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Applique les modifications du chunk (cx, cy) à ses tuiles (CHUNK_AREA tuiles)
+     */
+    public void apply(int cx, int cy, byte[] tiles) {
+        ChunkTable table = chunks;
+        if (table.size == 0) return;
+
+        ChunkEdits edits = table.get(ChunkCache.chunkKey(cx, cy));
+        if (edits == null) return;
+
+        synchronized (edits) {
+            int rank = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long bits = edits.modified[w];
+                while (bits != 0) {
+                    tiles[(w << 6) | Long.numberOfTrailingZeros(bits)] = edits.values[rank++];
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applique les modifications à une région remplie ligne par ligne
+     * (out[j * w + i] = tuile (x0 + i, y0 + j)), comme DevMap.fillTiles
+     */
+    public void apply(int x0, int y0, int w, int h, byte[] out) {
+        ChunkTable table = chunks;
+        if (table.size == 0 || w <= 0 || h <= 0) return;
+
+        int minCx = x0 >> ChunkCache.CHUNK_SHIFT;
+        int minCy = y0 >> ChunkCache.CHUNK_SHIFT;
+        int maxCx = (x0 + w - 1) >> ChunkCache.CHUNK_SHIFT;
+        int maxCy = (y0 + h - 1) >> ChunkCache.CHUNK_SHIFT;
+
+        for (int cy = minCy; cy <= maxCy; cy++) {
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                ChunkEdits edits = table.get(ChunkCache.chunkKey(cx, cy));
+                if (edits == null) continue;
+
+                int baseX = (cx << ChunkCache.CHUNK_SHIFT) - x0;
+                int baseY = (cy << ChunkCache.CHUNK_SHIFT) - y0;
+                synchronized (edits) {
+                    int rank = 0;
+                    for (int word = 0; word < WORDS; word++) {
+                        long bits = edits.modified[word];
+                        while (bits != 0) {
+                            int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+                            int i = baseX + (index & ChunkCache.CHUNK_MASK);
+                            int j = baseY + (index >> ChunkCache.CHUNK_SHIFT);
+                            if (i >= 0 && i < w && j >= 0 && j < h) {
+                                out[j * w + i] = edits.values[rank];
+                            }
+                            rank++;
+                            bits &= bits - 1;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Révision du chunk (cx, cy) : 0 s'il n'a jamais été modifié, change à chaque modification
+     */
+    public int getRevision(int cx, int cy) {
+        ChunkTable table = chunks;
+        if (table.size == 0) return 0;
+
+        ChunkEdits edits = table.get(ChunkCache.chunkKey(cx, cy));
+        return edits == null ? 0 : edits.revision;
+    }
+
+    /**
+     * Empreinte du contenu des modifications du chunk (cx, cy) : 0 s'il n'en a pas,
+     * identique d'une exécution à l'autre pour les mêmes modifications (contrairement à la révision)
+     */
+    public long getContentHash(int cx, int cy) {
+        ChunkEdits edits = chunks.get(ChunkCache.chunkKey(cx, cy));
+        if (edits == null) return 0;
+
+        synchronized (edits) {
+            if (edits.count == 0) return 0;
+
+            long hash = 1125899906842597L;
+            for (long word : edits.modified) hash = 31 * hash + word;
+            for (int i = 0; i < edits.count; i++) hash = 31 * hash + edits.values[i];
+            return hash == 0 ? 1 : hash;
+        }
+    }
+
+    public boolean isModified(int cx, int cy) {
+        ChunkEdits edits = chunks.get(ChunkCache.chunkKey(cx, cy));
+        if (edits == null) return false;
+        synchronized (edits) {
+            return edits.count > 0;
+        }
+    }
+
+    /**
+     * Supprime toutes les modifications (les caches de tuiles doivent être vidés)
+     */
+    public synchronized void clear() {
+        chunks = ChunkTable.EMPTY;
+    }
+
+    public int getModifiedChunkCount() {
+        return chunks.size;
+    }
+
+    public long getModifiedTileCount() {
+        long total = 0;
+        for (ChunkEdits edits : chunks.values) {
+            if (edits == null) continue;
+            synchronized (edits) {
+                total += edits.count;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Mémoire approximative occupée par les modifications (bitsets, valeurs, en-têtes)
+     */
+    public long getMemoryBytes() {
+        long total = 0;
+        for (ChunkEdits edits : chunks.values) {
+            if (edits == null) continue;
+            synchronized (edits) {
+                total += 64 + WORDS * 8 + edits.values.length;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Écrit les chunks modifiés : clé, bitset, puis une valeur par tuile modifiée
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+
+        // Instantané des entrées non vides, pour écrire un nombre de chunks cohérent
+        List<Long> keys = new ArrayList<>();
+        List<long[]> bitsets = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        ChunkTable table = chunks;
+        for (int slot = 0; slot < table.values.length; slot++) {
+            ChunkEdits edits = table.values[slot];
+            if (edits == null) continue;
+            synchronized (edits) {
+                if (edits.count == 0) continue;
+                keys.add(table.keys[slot]);
+                bitsets.add(edits.modified.clone());
+                values.add(Arrays.copyOf(edits.values, edits.count));
+            }
+        }
+
+        out.writeInt(keys.size());
+        for (int c = 0; c < keys.size(); c++) {
+            out.writeLong(keys.get(c));
+            for (long word : bitsets.get(c)) out.writeLong(word);
+            out.write(values.get(c));
+        }
+    }
+
+    /**
+     * Remplace les modifications par celles lues (format de write)
+     */
+    public void read(DataInput in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) throw new IOException("not a tile overlay");
+        int version = in.readInt();
+        if (version != FILE_VERSION) throw new IOException("unsupported overlay version " + version);
+
+        int count = in.readInt();
+        ChunkTable table = new ChunkTable(Integer.highestOneBit(Math.max(4, count) - 1) << 2); // au plus à moitié pleine
+        for (int c = 0; c < count; c++) {
+            long key = in.readLong();
+            ChunkEdits edits = new ChunkEdits();
+            int tiles = 0;
+            for (int w = 0; w < WORDS; w++) {
+                edits.modified[w] = in.readLong();
+                tiles += Long.bitCount(edits.modified[w]);
+            }
+            edits.values = new byte[Math.max(4, tiles)];
+            in.readFully(edits.values, 0, tiles);
+            edits.count = tiles;
+            edits.revision = revisions.incrementAndGet();
+            if (table.get(key) != null) throw new IOException("duplicate overlay chunk " + key);
+            table.insert(key, edits);
+        }
+        synchronized (this) {
+            chunks = table;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.alexdev.factory.map;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pyramide de niveaux de détail des chunks (façon mipmap).
+ * Le niveau 0 est le chunk lui-même, le niveau L contient une cellule par bloc
+ * de 2^L x 2^L tuiles, dont la valeur est le biome majoritaire du bloc.
+ * Les niveaux sont construits à la demande et gardés en cache (LRU).
+ */
+public class TilePyramid {
+
+    public static final int MAX_LEVEL = ChunkCache.CHUNK_SHIFT; // 1 cellule par chunk
+
+    /**
+     * Niveaux d'un chunk, construits à partir d'un tableau de tuiles donné
+     */
+    private static final class Entry {
+        final byte[] source;
+        final int revision;
+        final byte[][] levels = new byte[MAX_LEVEL + 1][];
+
+        Entry(byte[] source, int revision) {
+            this.source = source;
+            this.revision = revision;
+            this.levels[0] = source;
+        }
+    }
+
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final int[] counts = new int[DevMap.TILE_TYPE_COUNT];
+
+    private long levelsBuilt;
+
+    public TilePyramid(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Long, Entry>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > TilePyramid.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Retourne le niveau demandé du chunk (cx, cy), dont les tuiles sont tiles.
+     * Le tableau contient (CHUNK_SIZE >> level)² cellules, ligne par ligne.
+     * Si tiles n'est plus le tableau utilisé lors de la construction, ou si ses tuiles ont été
+     * modifiées depuis (revision, voir TileOverlay.getRevision), les niveaux sont reconstruits.
+     */
+    public byte[] getLevel(int cx, int cy, byte[] tiles, int level, int revision) {
+        if (level < 0 || level > MAX_LEVEL) throw new IllegalArgumentException("level must be in [0, " + MAX_LEVEL + "]");
+        if (level == 0) return tiles;
+
+        long key = ChunkCache.chunkKey(cx, cy);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.source != tiles || entry.revision != revision) {
+            entry = new Entry(tiles, revision);
+            entries.put(key, entry);
+        }
+
+        byte[] cells = entry.levels[level];
+        if (cells == null) {
+            cells = downsample(tiles, level);
+            entry.levels[level] = cells;
+        }
+        return cells;
+    }
+
+    /**
+     * Calcule le biome majoritaire de chaque bloc 2^level x 2^level
+     */
+    private byte[] downsample(byte[] tiles, int level) {
+        int block = 1 << level;
+        int cellsPerSide = ChunkCache.CHUNK_SIZE >> level;
+        byte[] cells = new byte[cellsPerSide * cellsPerSide];
+
+        for (int j = 0; j < cellsPerSide; j++) {
+            for (int i = 0; i < cellsPerSide; i++) {
+                for (int t = 0; t < counts.length; t++) counts[t] = 0;
+
+                for (int ly = j * block; ly < (j + 1) * block; ly++) {
+                    int row = ly << ChunkCache.CHUNK_SHIFT;
+                    for (int lx = i * block; lx < (i + 1) * block; lx++) {
+                        counts[tiles[row | lx]]++;
+                    }
+                }
+
+                int best = 0;
+                for (int t = 1; t < counts.length; t++) {
+                    if (counts[t] > counts[best]) best = t;
+                }
+                cells[j * cellsPerSide + i] = (byte) best;
+            }
+        }
+
+        levelsBuilt++;
+        return cells;
+    }
+
+    /**
+     * Oublie les niveaux du chunk (à appeler si ses tuiles sont modifiées sur place)
+     */
+    public void invalidate(int cx, int cy) {
+        entries.remove(ChunkCache.chunkKey(cx, cy));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int getResidentChunks() { return entries.size(); }
+    public long getLevelsBuilt() { return levelsBuilt; }
+}
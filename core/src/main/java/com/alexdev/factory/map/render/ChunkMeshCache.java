@@ -0,0 +1,236 @@
+package com.alexdev.factory.map.render;
+
+import com.alexdev.factory.map.BiomePalette;
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.DevMap;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache de meshes statiques de terrain, un par chunk.
+ * Les sommets d'un chunk sont construits une seule fois (en coordonnées locales au chunk)
+ * puis gardés dans un VBO ; le mesh n'est reconstruit que si les cellules du chunk,
+ * le niveau de détail ou la palette changent. Chaque chunk visible coûte un seul draw call.
+ */
+public class ChunkMeshCache {
+
+    private static final int FLOATS_PER_VERTEX = 3; // x, y, couleur empaquetée
+    private static final int MAX_QUADS = ChunkCache.CHUNK_AREA;
+
+    private static final String VERTEX_SHADER =
+        "attribute vec4 " + ShaderProgram.POSITION_ATTRIBUTE + ";\n" +
+        "attribute vec4 " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+        "uniform mat4 u_projTrans;\n" +
+        "uniform vec2 u_origin;\n" +
+        "varying vec4 v_color;\n" +
+        "void main() {\n" +
+        "    v_color = " + ShaderProgram.COLOR_ATTRIBUTE + ";\n" +
+        "    v_color.a = v_color.a * (255.0 / 254.0);\n" +
+        "    gl_Position = u_projTrans * vec4(" + ShaderProgram.POSITION_ATTRIBUTE + ".xy + u_origin, 0.0, 1.0);\n" +
+        "}\n";
+
+    private static final String FRAGMENT_SHADER =
+        "#ifdef GL_ES\n" +
+        "precision mediump float;\n" +
+        "#endif\n" +
+        "varying vec4 v_color;\n" +
+        "void main() {\n" +
+        "    gl_FragColor = v_color;\n" +
+        "}\n";
+
+    /**
+     * Mesh d'un chunk et les données à partir desquelles il a été construit
+     */
+    private static final class Entry {
+        byte[] source;
+        int revision;
+        int level;
+        BiomePalette palette;
+        Mesh mesh;
+        int indexCount;
+    }
+
+    private final DevMap map;
+    private final int capacity;
+    private final LinkedHashMap<Long, Entry> entries;
+    private final ShaderProgram shader;
+
+    // Tampons de construction réutilisés
+    private final float[] vertices = new float[MAX_QUADS * 4 * FLOATS_PER_VERTEX];
+    private final short[] indices = new short[MAX_QUADS * 6];
+
+    // Statistiques
+    private long built;
+    private long rebuilt;
+    private long evicted;
+    private int drawCalls;
+
+    public ChunkMeshCache(DevMap map, int capacity) {
+        this.map = map;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Long, Entry>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= ChunkMeshCache.this.capacity) return false;
+
+                eldest.getValue().mesh.dispose();
+                evicted++;
+                return true;
+            }
+        };
+
+        shader = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+        if (!shader.isCompiled()) {
+            throw new IllegalStateException("Terrain shader failed to compile: " + shader.getLog());
+        }
+
+        // Indices des quads : toujours le même motif, seul le nombre utilisé varie
+        for (int q = 0, v = 0; q < MAX_QUADS; q++, v += 4) {
+            int i = q * 6;
+            indices[i] = (short) v;
+            indices[i + 1] = (short) (v + 1);
+            indices[i + 2] = (short) (v + 2);
+            indices[i + 3] = (short) (v + 2);
+            indices[i + 4] = (short) (v + 3);
+            indices[i + 5] = (short) v;
+        }
+    }
+
+    /**
+     * Prépare le shader pour une série de draw() (une fois par frame)
+     */
+    public void begin(Matrix4 projection) {
+        shader.bind();
+        shader.setUniformMatrix("u_projTrans", projection);
+        drawCalls = 0;
+    }
+
+    /**
+     * Dessine le chunk (cx, cy) avec les cellules données au niveau de détail level,
+     * en (re)construisant son mesh si nécessaire
+     * @param revision révision des tuiles du chunk (TileOverlay.getRevision), le mesh est reconstruit si elle change
+     */
+    public void draw(int cx, int cy, byte[] cells, int level, int revision) {
+        long key = ChunkCache.chunkKey(cx, cy);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry();
+            build(entry, cells, level, revision);
+            entries.put(key, entry);
+            built++;
+        } else if (entry.source != cells || entry.revision != revision || entry.level != level
+            || entry.palette != map.getPalette()) {
+            entry.mesh.dispose();
+            build(entry, cells, level, revision);
+            rebuilt++;
+        }
+
+        shader.setUniformf("u_origin",
+            (cx << ChunkCache.CHUNK_SHIFT) * TerrainRenderer.TILE_SIZE,
+            (cy << ChunkCache.CHUNK_SHIFT) * TerrainRenderer.TILE_SIZE);
+        entry.mesh.render(shader, GL20.GL_TRIANGLES, 0, entry.indexCount);
+        drawCalls++;
+    }
+
+    /**
+     * Construit le mesh d'un chunk. Les cellules voisines de même type sur une ligne
+     * sont fusionnées en un seul quad.
+     */
+    private void build(Entry entry, byte[] cells, int level, int revision) {
+        BiomePalette palette = map.getPalette();
+        int cellsPerSide = ChunkCache.CHUNK_SIZE >> level;
+        float cellSize = TerrainRenderer.TILE_SIZE << level;
+        int quads = 0;
+        int v = 0;
+
+        for (int j = 0; j < cellsPerSide; j++) {
+            int row = j * cellsPerSide;
+            int i = 0;
+            while (i < cellsPerSide) {
+                int type = cells[row + i];
+                int end = i + 1;
+                while (end < cellsPerSide && cells[row + end] == type) end++;
+
+                float color = palette.getColorBits(type);
+                float x0 = i * cellSize;
+                float x1 = end * cellSize;
+                float y0 = j * cellSize;
+                float y1 = y0 + cellSize;
+
+                v = putVertex(v, x0, y0, color);
+                v = putVertex(v, x1, y0, color);
+                v = putVertex(v, x1, y1, color);
+                v = putVertex(v, x0, y1, color);
+                quads++;
+                i = end;
+            }
+        }
+
+        Mesh mesh = new Mesh(true, quads * 4, quads * 6,
+            new VertexAttribute(VertexAttributes.Usage.Position, 2, ShaderProgram.POSITION_ATTRIBUTE),
+            new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, ShaderProgram.COLOR_ATTRIBUTE));
+        mesh.setVertices(vertices, 0, v);
+        mesh.setIndices(indices, 0, quads * 6);
+
+        entry.source = cells;
+        entry.revision = revision;
+        entry.level = level;
+        entry.palette = palette;
+        entry.mesh = mesh;
+        entry.indexCount = quads * 6;
+    }
+
+    private int putVertex(int v, float x, float y, float color) {
+        vertices[v] = x;
+        vertices[v + 1] = y;
+        vertices[v + 2] = color;
+        return v + FLOATS_PER_VERTEX;
+    }
+
+    /**
+     * Oublie le mesh du chunk (il sera reconstruit au prochain draw)
+     */
+    public void invalidate(int cx, int cy) {
+        Entry entry = entries.remove(ChunkCache.chunkKey(cx, cy));
+        if (entry != null) {
+            entry.mesh.dispose();
+        }
+    }
+
+    /**
+     * Libère tous les meshes
+     */
+    public void clear() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            it.next().mesh.dispose();
+            it.remove();
+        }
+    }
+
+    public void dispose() {
+        clear();
+        shader.dispose();
+    }
+
+    // Getters
+    public int getResidentMeshes() { return entries.size(); }
+    public long getBuiltCount() { return built; }
+    public long getRebuiltCount() { return rebuilt; }
+    public long getEvictedCount() { return evicted; }
+    public int getDrawCalls() { return drawCalls; }
+
+    @Override
+    public String toString() {
+        return "ChunkMeshCache [resident=" + entries.size() + "/" + capacity + ", built=" + built +
+            ", rebuilt=" + rebuilt + ", evicted=" + evicted + ", drawCalls=" + drawCalls + "]";
+    }
+}
@@ -0,0 +1,127 @@
+package com.alexdev.factory.map.render;
+
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.ChunkGenerationService;
+import com.alexdev.factory.map.DevMap;
+import com.alexdev.factory.map.TilePyramid;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+
+/**
+ * Dessine le terrain visible par la caméra.
+ * Le niveau de détail est choisi selon le zoom : une cellule dessinée fait toujours
+ * au moins minCellPixels pixels à l'écran (et moins du double), ce qui borne le nombre
+ * de cellules quel que soit le zoom. En 1080p avec 24 pixels, il reste entre ~1 300
+ * et ~3 400 cellules dès que le zoom dépasse 0.75 (environ 2 200 au zoom 1, 3 400 au zoom 5),
+ * au lieu de croître comme le carré du zoom.
+ * Les chunks prêts sont dessinés avec leur mesh précalculé (un draw call chacun),
+ * les chunks pas encore générés avec un aplat via le ShapeRenderer.
+ */
+public class TerrainRenderer {
+
+    public static final int TILE_SIZE = 32; // pixels monde par tuile
+
+    private final DevMap map;
+    private final ChunkGenerationService chunkService;
+    private final TilePyramid pyramid;
+    private final ChunkMeshCache meshCache;
+    private float minCellPixels = 24;
+
+    // Statistiques de la dernière frame
+    private int lastLevel;
+    private int lastPlaceholderCount;
+
+    public TerrainRenderer(ChunkGenerationService chunkService) {
+        this.chunkService = chunkService;
+        this.map = chunkService.getCache().getMap();
+        this.pyramid = new TilePyramid(chunkService.getCache().getCapacity());
+        this.meshCache = new ChunkMeshCache(map, 128);
+    }
+
+    /**
+     * Dessine le terrain. Le ShapeRenderer ne doit pas être en cours d'utilisation :
+     * il n'est ouvert que pour les chunks pas encore générés.
+     */
+    public void render(ShapeRenderer shapeRenderer, OrthographicCamera camera) {
+        float halfWidth = camera.viewportWidth * camera.zoom / 2;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2;
+
+        // Zone visible en tuiles (une tuile de marge)
+        int minX = (int) Math.floor((camera.position.x - halfWidth) / TILE_SIZE) - 1;
+        int maxX = (int) Math.floor((camera.position.x + halfWidth) / TILE_SIZE) + 1;
+        int minY = (int) Math.floor((camera.position.y - halfHeight) / TILE_SIZE) - 1;
+        int maxY = (int) Math.floor((camera.position.y + halfHeight) / TILE_SIZE) + 1;
+
+        int minCx = minX >> ChunkCache.CHUNK_SHIFT;
+        int maxCx = maxX >> ChunkCache.CHUNK_SHIFT;
+        int minCy = minY >> ChunkCache.CHUNK_SHIFT;
+        int maxCy = maxY >> ChunkCache.CHUNK_SHIFT;
+
+        int level = selectLevel(camera.zoom);
+        int placeholders = 0;
+
+        // Passe 1 : meshes des chunks prêts
+        meshCache.begin(camera.combined);
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cy = minCy; cy <= maxCy; cy++) {
+                byte[] tiles = chunkService.getChunk(cx, cy);
+                if (tiles == null) {
+                    placeholders++;
+                    continue;
+                }
+                int revision = map.getOverlay().getRevision(cx, cy);
+                meshCache.draw(cx, cy, pyramid.getLevel(cx, cy, tiles, level, revision), level, revision);
+            }
+        }
+
+        // Passe 2 : aplats des chunks pas encore générés
+        if (placeholders > 0) {
+            shapeRenderer.setProjectionMatrix(camera.combined);
+            shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+            for (int cx = minCx; cx <= maxCx; cx++) {
+                for (int cy = minCy; cy <= maxCy; cy++) {
+                    if (chunkService.getChunk(cx, cy) != null) continue;
+
+                    int baseX = cx << ChunkCache.CHUNK_SHIFT;
+                    int baseY = cy << ChunkCache.CHUNK_SHIFT;
+                    int x0 = Math.max(minX, baseX);
+                    int x1 = Math.min(maxX, baseX + ChunkCache.CHUNK_MASK);
+                    int y0 = Math.max(minY, baseY);
+                    int y1 = Math.min(maxY, baseY + ChunkCache.CHUNK_MASK);
+                    shapeRenderer.setColor(map.getTileColor(chunkService.getPlaceholderTile(cx, cy)));
+                    shapeRenderer.rect(x0 * TILE_SIZE, y0 * TILE_SIZE,
+                        (x1 - x0 + 1) * TILE_SIZE, (y1 - y0 + 1) * TILE_SIZE);
+                }
+            }
+            shapeRenderer.end();
+        }
+
+        lastLevel = level;
+        lastPlaceholderCount = placeholders;
+    }
+
+    /**
+     * Plus petit niveau dont les cellules font au moins minCellPixels pixels à l'écran
+     */
+    public int selectLevel(float zoom) {
+        int level = 0;
+        while (level < TilePyramid.MAX_LEVEL && (TILE_SIZE << level) / zoom < minCellPixels) {
+            level++;
+        }
+        return level;
+    }
+
+    public void setMinCellPixels(float minCellPixels) {
+        this.minCellPixels = minCellPixels;
+    }
+
+    // Getters
+    public TilePyramid getPyramid() { return pyramid; }
+    public ChunkMeshCache getMeshCache() { return meshCache; }
+    public int getLastLevel() { return lastLevel; }
+    public int getLastPlaceholderCount() { return lastPlaceholderCount; }
+
+    public void dispose() {
+        meshCache.dispose();
+    }
+}
@@ -0,0 +1,96 @@
+package com.alexdev.factory.production;
+
+import com.alexdev.factory.inventory.Inventory;
+import com.alexdev.factory.map.DevMap;
+import com.alexdev.factory.resource.NodeStore;
+import com.alexdev.factory.resource.ResourceManager;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Mesure la durée d'un tick de DrillSystem avec un grand nombre de foreuses,
+ * sur des nodes générés par le jeu (headless, sans rendu).
+ * Pour mesurer le régime établi, les nodes sont remplis assez pour ne pas s'épuiser pendant le test,
+ * et les inventaires de sortie sont vidés régulièrement, comme par des convoyeurs.
+ * Le préchauffage laisse le JIT compiler le tick avant la mesure.
+ *
+ * Usage : DrillBenchmark [foreuses] [ticks mesurés] [budget par tick en microsecondes] [graine]
+ * Code de sortie 1 si le 99e centile dépasse le budget.
+ */
+public class DrillBenchmark {
+
+    private static final int WARMUP_TICKS = 2000;
+    private static final int NODE_AMOUNT = 1000000;
+    private static final int DRILLS_PER_OUTPUT = 1000;
+
+    public static void main(String[] args) {
+        int drills = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int measuredTicks = args.length > 1 ? Integer.parseInt(args[1]) : 1200;
+        long budgetMicros = args.length > 2 ? Long.parseLong(args[2]) : 2000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 21343124L;
+
+        // Nodes : génération du jeu sur une zone assez grande
+        long start = System.nanoTime();
+        ResourceManager resources = new ResourceManager(new DevMap(seed), seed);
+        int radius = 512;
+        while (resources.getTotalNodes() < drills) {
+            resources.generateResourcesInArea(0, 0, radius);
+            radius += 512;
+        }
+        System.out.println("Generated " + resources.getTotalNodes() + " nodes (radius " + (radius - 512) + " tiles) in " +
+            (System.nanoTime() - start) / 1000000 + " ms");
+
+        // Une foreuse par node, vitesses variées, une sortie pour DRILLS_PER_OUTPUT foreuses
+        DrillSystem system = new DrillSystem(resources, drills);
+        Inventory[] outputs = new Inventory[(drills + DRILLS_PER_OUTPUT - 1) / DRILLS_PER_OUTPUT];
+        for (int i = 0; i < outputs.length; i++) outputs[i] = new Inventory(64);
+
+        NodeStore store = resources.getStore();
+        Random random = new Random(seed);
+        for (int slot = 0; slot < store.getSlotCount() && system.size() < drills; slot++) {
+            int handle = store.handleAt(slot);
+            if (handle == NodeStore.NO_NODE) continue;
+
+            store.setAmount(handle, NODE_AMOUNT);
+            int id = system.addDrill(store.view(handle), 0.5f + random.nextFloat() * 1.5f, 50);
+            system.setOutput(id, outputs[system.size() / DRILLS_PER_OUTPUT % outputs.length]);
+        }
+
+        for (int i = 0; i < WARMUP_TICKS; i++) tick(system, outputs);
+
+        long[] durations = new long[measuredTicks];
+        long extractedBefore = system.getExtractedCount();
+        for (int i = 0; i < measuredTicks; i++) {
+            long tickStart = System.nanoTime();
+            tick(system, outputs);
+            durations[i] = System.nanoTime() - tickStart;
+        }
+        long extracted = system.getExtractedCount() - extractedBefore;
+
+        Arrays.sort(durations);
+        long total = 0;
+        for (long duration : durations) total += duration;
+        long p99 = durations[Math.min(durations.length - 1, (int) (durations.length * 0.99))];
+
+        System.out.println(system.size() + " drills, " + measuredTicks + " ticks (" +
+            measuredTicks / DrillSystem.TICK_RATE + " s simulated), " + extracted + " units extracted");
+        System.out.printf("tick: avg %d us, p50 %d us, p99 %d us, max %d us (budget %d us)%n",
+            total / durations.length / 1000, durations[durations.length / 2] / 1000, p99 / 1000,
+            durations[durations.length - 1] / 1000, budgetMicros);
+
+        if (p99 > budgetMicros * 1000) {
+            System.out.println("OVER BUDGET");
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    private static void tick(DrillSystem system, Inventory[] outputs) {
+        system.tick();
+        // Les sorties sont consommées une fois par seconde
+        if (system.getTickCount() % DrillSystem.TICK_RATE == 0) {
+            for (Inventory output : outputs) output.clear();
+        }
+    }
+}
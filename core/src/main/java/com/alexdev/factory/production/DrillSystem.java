@@ -0,0 +1,539 @@
+package com.alexdev.factory.production;
+
+import com.alexdev.factory.inventory.Inventory;
+import com.alexdev.factory.inventory.Item;
+import com.alexdev.factory.resource.NodeStore;
+import com.alexdev.factory.resource.ResourceManager;
+import com.alexdev.factory.resource.ResourceNode;
+import com.alexdev.factory.util.LongIntMap;
+import com.alexdev.factory.world.RegionStore;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Foreuses automatiques posées sur les nodes de ressources, simulées à pas fixe (TICK_RATE par seconde).
+ * L'état est rangé par colonnes (un tableau primitif par champ, indexé par l'identifiant de la foreuse) :
+ * l'extraction ne fait que parcourir ces tableaux, sans objet ni allocation.
+ *
+ * Chaque foreuse extrait une unité de son node à chaque fois que sa progression atteint 1,
+ * dans un tampon de sortie borné (elle s'arrête quand il est plein ou que le node est épuisé).
+ * Les tampons sont vidés moins souvent (toutes les FLUSH_INTERVAL ticks) dans l'Inventory
+ * attaché à la foreuse, s'il y en a un : la production est d'abord totalisée par inventaire
+ * et par ressource, pour n'ajouter qu'une quantité par couple au lieu d'une par foreuse.
+ * Les piles déjà présentes sont complétées sur place : un vidage n'alloue un Item
+ * que pour chaque pile qu'il ouvre dans un slot vide.
+ * Chaque tick vide une tranche des foreuses (un FLUSH_INTERVAL-ième), pour que le coût
+ * des ajouts aux inventaires ne tombe pas sur un seul tick.
+ *
+ * Une seule foreuse par node. Le chunk de chaque foreuse est épinglé dans le ResourceManager
+ * (pinChunk) : il reste chargé loin du joueur et la foreuse continue d'extraire. Une foreuse
+ * dont le node est retiré (chunk déchargé autrement, node supprimé) est détachée et s'y rattache
+ * quand un node réapparaît à la même position. Les foreuses s'enregistrent avec write / read.
+ * À utiliser depuis le thread de rendu.
+ */
+public class DrillSystem implements ResourceManager.NodeListener {
+
+    public static final int TICK_RATE = 20;
+    public static final float TICK_SECONDS = 1f / TICK_RATE;
+    public static final int NO_DRILL = -1;
+
+    // Ticks rattrapés au plus par update (une frame très longue ne bloque pas la suivante)
+    private static final int MAX_TICKS_PER_UPDATE = 5;
+    // Vidage des tampons vers les inventaires, en ticks
+    private static final int FLUSH_INTERVAL = TICK_RATE;
+    private static final int MAX_STACK = 99;
+
+    private static final ResourceNode.ResourceType[] TYPES = ResourceNode.ResourceType.values();
+
+    private static final int FILE_MAGIC = 0x44524C53; // "DRLS"
+    private static final int FILE_VERSION = 1;
+
+    // États
+    private static final byte FREE = 0;
+    private static final byte ATTACHED = 1;
+    private static final byte DETACHED = 2; // node déchargé ou supprimé
+
+    private final ResourceManager resources;
+    private final NodeStore store;
+    private final String[] itemIds = new String[TYPES.length];
+
+    // Colonnes
+    private int[] nodes;        // handle du node, NodeStore.NO_NODE si détachée
+    private float[] nodeX;      // position du node (pour le retrouver quand il est régénéré)
+    private float[] nodeY;
+    private float[] rate;       // unités extraites par seconde
+    private float[] progress;
+    private int[] buffered;
+    private int[] capacity;
+    private byte[] type;
+    private byte[] state;
+    private int[] output;       // index dans outputs, -1 sans inventaire
+
+    // Inventaires de sortie (peu nombreux), nombre de foreuses de chacun,
+    // et totaux de production par inventaire et par ressource.
+    // Un inventaire qui n'a plus de foreuse est retiré (le dernier prend sa place)
+    private Inventory[] outputs = new Inventory[4];
+    private int[] outputUsers = new int[4];
+    private int outputCount;
+    private int[] outputTotals = new int[4 * TYPES.length];
+
+    private int[] freeIds = new int[16];
+    private int freeCount;
+    private int highWater;
+    private int count;
+
+    // Foreuse de chaque node, par position du node
+    private final LongIntMap drillsByNode = new LongIntMap();
+    private final IntArray handles = new IntArray();
+
+    private float accumulator;
+    private long ticks;
+    private long extracted;
+    private long lastTickNanos;
+    private long maxTickNanos;
+
+    public DrillSystem(ResourceManager resources) {
+        this(resources, 64);
+    }
+
+    public DrillSystem(ResourceManager resources, int initialCapacity) {
+        this.resources = resources;
+        this.store = resources.getStore();
+        for (ResourceNode.ResourceType resourceType : TYPES) {
+            itemIds[resourceType.ordinal()] = resourceType.name().toLowerCase(Locale.ROOT);
+        }
+        allocate(Math.max(1, initialCapacity));
+        resources.addNodeListener(this);
+    }
+
+    /**
+     * Pose une foreuse sur un node du ResourceManager
+     * @param unitsPerSecond vitesse d'extraction
+     * @param bufferCapacity nombre d'unités que la foreuse garde avant de s'arrêter
+     * @return identifiant de la foreuse, ou NO_DRILL si le node en a déjà une
+     */
+    public int addDrill(ResourceNode node, float unitsPerSecond, int bufferCapacity) {
+        if (node.getStore() != store) throw new IllegalArgumentException("node is not managed by this ResourceManager");
+        if (unitsPerSecond <= 0 || bufferCapacity <= 0) throw new IllegalArgumentException("rate and capacity must be > 0");
+
+        long key = positionKey(node.getX(), node.getY());
+        if (drillsByNode.containsKey(key)) return NO_DRILL;
+
+        int id = nextId();
+        nodes[id] = node.getHandle();
+        nodeX[id] = node.getX();
+        nodeY[id] = node.getY();
+        rate[id] = unitsPerSecond;
+        progress[id] = 0;
+        buffered[id] = 0;
+        capacity[id] = bufferCapacity;
+        type[id] = (byte) node.getType().ordinal();
+        state[id] = ATTACHED;
+        output[id] = -1;
+        drillsByNode.put(key, id);
+        count++;
+        resources.pinChunk(RegionStore.chunkOf(nodeX[id]), RegionStore.chunkOf(nodeY[id]));
+        return id;
+    }
+
+    private int nextId() {
+        if (freeCount > 0) return freeIds[--freeCount];
+        if (highWater == nodes.length) allocate(nodes.length * 2);
+        return highWater++;
+    }
+
+    /**
+     * Retire une foreuse (le contenu de son tampon est perdu : voir flush)
+     */
+    public void removeDrill(int id) {
+        if (!exists(id)) return;
+
+        drillsByNode.remove(positionKey(nodeX[id], nodeY[id]), NO_DRILL);
+        resources.unpinChunk(RegionStore.chunkOf(nodeX[id]), RegionStore.chunkOf(nodeY[id]));
+        nodes[id] = NodeStore.NO_NODE;
+        int previous = output[id];
+        output[id] = -1;
+        if (previous >= 0) releaseOutput(previous);
+        state[id] = FREE;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        freeIds[freeCount++] = id;
+        count--;
+    }
+
+    /**
+     * Inventaire qui reçoit la production de la foreuse (null : elle garde tout dans son tampon)
+     */
+    public void setOutput(int id, Inventory inventory) {
+        int previous = output[id];
+        output[id] = inventory == null ? -1 : acquireOutput(inventory);
+        if (previous >= 0) releaseOutput(previous);
+    }
+
+    /**
+     * Index de l'inventaire dans outputs (ajouté s'il n'y est pas), compté pour une foreuse de plus
+     */
+    private int acquireOutput(Inventory inventory) {
+        for (int i = 0; i < outputCount; i++) {
+            if (outputs[i] == inventory) {
+                outputUsers[i]++;
+                return i;
+            }
+        }
+        if (outputCount == outputs.length) {
+            outputs = Arrays.copyOf(outputs, outputCount * 2);
+            outputUsers = Arrays.copyOf(outputUsers, outputs.length);
+            outputTotals = Arrays.copyOf(outputTotals, outputs.length * TYPES.length);
+        }
+        outputs[outputCount] = inventory;
+        outputUsers[outputCount] = 1;
+        return outputCount++;
+    }
+
+    /**
+     * Une foreuse de moins pour la sortie index : à la dernière, l'inventaire est retiré
+     * (plus de référence ni de totaux à vider à chaque flush) et le dernier prend sa place
+     */
+    private void releaseOutput(int index) {
+        if (--outputUsers[index] > 0) return;
+
+        int last = --outputCount;
+        if (index != last) {
+            outputs[index] = outputs[last];
+            outputUsers[index] = outputUsers[last];
+            for (int id = 0; id < highWater; id++) {
+                if (output[id] == last) output[id] = index;
+            }
+        }
+        outputs[last] = null;
+        outputUsers[last] = 0;
+    }
+
+    /**
+     * Avance la simulation du temps écoulé, par ticks fixes
+     * @return nombre de ticks joués
+     */
+    public int update(float delta) {
+        accumulator += delta;
+        int played = 0;
+        while (accumulator >= TICK_SECONDS && played < MAX_TICKS_PER_UPDATE) {
+            tick();
+            accumulator -= TICK_SECONDS;
+            played++;
+        }
+        // Retard non rattrapable : abandonné plutôt que de ralentir les frames suivantes
+        if (played == MAX_TICKS_PER_UPDATE) accumulator = Math.min(accumulator, TICK_SECONDS);
+        return played;
+    }
+
+    /**
+     * Un pas de simulation de toutes les foreuses
+     */
+    public void tick() {
+        long start = System.nanoTime();
+        int[] drillNodes = nodes;
+        float[] drillProgress = progress;
+        int[] drillBuffered = buffered;
+        float step = TICK_SECONDS;
+
+        for (int id = 0; id < highWater; id++) {
+            int handle = drillNodes[id];
+            if (handle == NodeStore.NO_NODE || drillBuffered[id] >= capacity[id]) continue;
+
+            float value = drillProgress[id] + rate[id] * step;
+            if (value < 1) {
+                drillProgress[id] = value;
+                continue;
+            }
+            if (store.isDepleted(handle)) {
+                drillProgress[id] = 0;
+                continue;
+            }
+
+            // Une unité au plus par tick et par foreuse
+            drillProgress[id] = value - 1;
+            store.setAmount(handle, store.getAmount(handle) - 1);
+            drillBuffered[id]++;
+            extracted++;
+        }
+
+        ticks++;
+        if (outputCount > 0) {
+            int slice = (highWater + FLUSH_INTERVAL - 1) / FLUSH_INTERVAL;
+            int from = (int) (ticks % FLUSH_INTERVAL) * slice;
+            flush(from, Math.min(highWater, from + slice));
+        }
+
+        lastTickNanos = System.nanoTime() - start;
+        if (lastTickNanos > maxTickNanos) maxTickNanos = lastTickNanos;
+    }
+
+    /**
+     * Vide les tampons des foreuses dans leurs inventaires (ce qui ne rentre pas reste dans le tampon)
+     */
+    public void flush() {
+        flush(0, highWater);
+    }
+
+    /**
+     * Vide les tampons des foreuses [from, to)
+     */
+    private void flush(int from, int to) {
+        // Production totale par inventaire et par ressource
+        int[] totals = outputTotals;
+        Arrays.fill(totals, 0, outputCount * TYPES.length, 0);
+        boolean any = false;
+        for (int id = from; id < to; id++) {
+            int target = output[id];
+            if (target < 0 || buffered[id] == 0) continue;
+            totals[target * TYPES.length + type[id]] += buffered[id];
+            any = true;
+        }
+        if (!any) return;
+
+        // Ce que chaque inventaire accepte vraiment
+        for (int i = 0; i < outputCount; i++) {
+            for (int t = 0; t < TYPES.length; t++) {
+                int index = i * TYPES.length + t;
+                if (totals[index] > 0) totals[index] = store(outputs[i], TYPES[t], totals[index]);
+            }
+        }
+
+        // Retiré des tampons dans l'ordre des foreuses
+        for (int id = from; id < to; id++) {
+            int target = output[id];
+            if (target < 0 || buffered[id] == 0) continue;
+            int index = target * TYPES.length + type[id];
+            int taken = Math.min(buffered[id], totals[index]);
+            buffered[id] -= taken;
+            totals[index] -= taken;
+        }
+    }
+
+    /**
+     * Ajoute quantity unités de la ressource : complète d'abord les piles existantes,
+     * puis ouvre des piles de MAX_STACK dans les slots vides
+     * @return nombre d'unités ajoutées
+     */
+    private int store(Inventory inventory, ResourceNode.ResourceType resourceType, int quantity) {
+        String id = itemIds[resourceType.ordinal()];
+        int remaining = quantity;
+        for (int i = 0; i < inventory.size() && remaining > 0; i++) {
+            Item item = inventory.get(i);
+            if (item == null || !item.canStack() || !item.getId().equals(id)) continue;
+
+            int added = Math.min(item.getMaxStack() - item.getQuantity(), remaining);
+            item.addQuantity(added);
+            remaining -= added;
+        }
+
+        for (int i = 0; i < inventory.size() && remaining > 0; i++) {
+            if (inventory.get(i) != null) continue;
+
+            int stack = Math.min(remaining, MAX_STACK);
+            inventory.set(i, new Item.Builder(id, resourceType.displayName)
+                .type("material")
+                .quantity(stack)
+                .maxStack(MAX_STACK)
+                .build());
+            remaining -= stack;
+        }
+        return quantity - remaining;
+    }
+
+    @Override
+    public void nodeAdded(NodeStore nodeStore, int handle) {
+        if (drillsByNode.isEmpty()) return;
+
+        int id = drillsByNode.get(positionKey(nodeStore.getX(handle), nodeStore.getY(handle)), NO_DRILL);
+        if (id != NO_DRILL && state[id] == DETACHED) {
+            nodes[id] = handle;
+            state[id] = ATTACHED;
+        }
+    }
+
+    @Override
+    public void nodeRemoved(NodeStore nodeStore, int handle) {
+        if (drillsByNode.isEmpty()) return;
+
+        int id = drillsByNode.get(positionKey(nodeStore.getX(handle), nodeStore.getY(handle)), NO_DRILL);
+        if (id != NO_DRILL && nodes[id] == handle) {
+            nodes[id] = NodeStore.NO_NODE;
+            state[id] = DETACHED;
+        }
+    }
+
+    @Override
+    public void nodeChanged(NodeStore nodeStore, int handle, int oldAmount) {
+        // La foreuse lit la quantité restante à chaque extraction
+    }
+
+    /**
+     * Écrit toutes les foreuses, tampons compris (format binaire versionné).
+     * La sortie de chaque foreuse est enregistrée par son rang parmi les sorties en cours
+     * (getOutput) : voir read.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(count);
+        for (int id = 0; id < highWater; id++) {
+            if (state[id] == FREE) continue;
+            out.writeFloat(nodeX[id]);
+            out.writeFloat(nodeY[id]);
+            out.writeFloat(rate[id]);
+            out.writeFloat(progress[id]);
+            out.writeInt(buffered[id]);
+            out.writeInt(capacity[id]);
+            out.writeByte(type[id]);
+            out.writeInt(output[id]);
+        }
+    }
+
+    /**
+     * Remplace les foreuses par celles écrites par write. Leurs chunks sont épinglés (et générés),
+     * ce qui les rattache à leurs nodes.
+     * @param outputs inventaires de sortie, dans l'ordre de getOutput au moment de write
+     *                (une sortie absente de la liste est remplacée par aucune)
+     */
+    public void read(DataInput in, Inventory... outputs) throws IOException {
+        if (in.readInt() != FILE_MAGIC) throw new IOException("not a drill file");
+        int version = in.readInt();
+        if (version != FILE_VERSION) throw new IOException("unsupported drill version " + version);
+
+        for (int id = 0; id < highWater; id++) removeDrill(id);
+        int drills = in.readInt();
+        for (int i = 0; i < drills; i++) {
+            float x = in.readFloat();
+            float y = in.readFloat();
+            float drillRate = in.readFloat();
+            float drillProgress = in.readFloat();
+            int drillBuffered = in.readInt();
+            int drillCapacity = in.readInt();
+            int drillType = in.readUnsignedByte();
+            int drillOutput = in.readInt();
+            if (drillType >= TYPES.length) throw new IOException("unknown resource type " + drillType);
+
+            long key = positionKey(x, y);
+            if (drillsByNode.containsKey(key)) continue;
+
+            int id = nextId();
+            nodes[id] = NodeStore.NO_NODE;
+            nodeX[id] = x;
+            nodeY[id] = y;
+            rate[id] = drillRate;
+            progress[id] = drillProgress;
+            buffered[id] = drillBuffered;
+            capacity[id] = drillCapacity;
+            type[id] = (byte) drillType;
+            state[id] = DETACHED;
+            output[id] = drillOutput >= 0 && drillOutput < outputs.length && outputs[drillOutput] != null
+                ? acquireOutput(outputs[drillOutput]) : -1;
+            drillsByNode.put(key, id);
+            count++;
+
+            // Chunk pas encore généré : nodeAdded rattache la foreuse ; déjà en mémoire : recherche du node
+            resources.pinChunk(RegionStore.chunkOf(x), RegionStore.chunkOf(y));
+            if (state[id] == DETACHED) attach(id);
+        }
+    }
+
+    /**
+     * Rattache la foreuse au node en mémoire à sa position, s'il y en a un
+     */
+    private void attach(int id) {
+        float x = nodeX[id];
+        float y = nodeY[id];
+        resources.getHandlesInArea(x, y, x, y, handles);
+        for (int i = 0; i < handles.size; i++) {
+            int handle = handles.get(i);
+            if (store.getX(handle) == x && store.getY(handle) == y) {
+                nodes[id] = handle;
+                state[id] = ATTACHED;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Foreuse posée sur le node, ou NO_DRILL
+     */
+    public int getDrillAt(ResourceNode node) {
+        return getDrillAt(node.getX(), node.getY());
+    }
+
+    /**
+     * Foreuse posée sur le node de position (x, y), ou NO_DRILL (sans vue : voir getHandlesInArea)
+     */
+    public int getDrillAt(float x, float y) {
+        return drillsByNode.get(positionKey(x, y), NO_DRILL);
+    }
+
+    private static long positionKey(float x, float y) {
+        return ((long) Float.floatToIntBits(x) << 32) | (Float.floatToIntBits(y) & 0xFFFFFFFFL);
+    }
+
+    public boolean exists(int id) {
+        return id >= 0 && id < highWater && state[id] != FREE;
+    }
+
+    private void allocate(int newCapacity) {
+        if (nodes == null) {
+            nodes = new int[newCapacity];
+            nodeX = new float[newCapacity];
+            nodeY = new float[newCapacity];
+            rate = new float[newCapacity];
+            progress = new float[newCapacity];
+            buffered = new int[newCapacity];
+            capacity = new int[newCapacity];
+            type = new byte[newCapacity];
+            state = new byte[newCapacity];
+            output = new int[newCapacity];
+            Arrays.fill(nodes, NodeStore.NO_NODE);
+            Arrays.fill(output, -1);
+            return;
+        }
+
+        int oldCapacity = nodes.length;
+        nodes = Arrays.copyOf(nodes, newCapacity);
+        Arrays.fill(nodes, oldCapacity, newCapacity, NodeStore.NO_NODE);
+        nodeX = Arrays.copyOf(nodeX, newCapacity);
+        nodeY = Arrays.copyOf(nodeY, newCapacity);
+        rate = Arrays.copyOf(rate, newCapacity);
+        progress = Arrays.copyOf(progress, newCapacity);
+        buffered = Arrays.copyOf(buffered, newCapacity);
+        capacity = Arrays.copyOf(capacity, newCapacity);
+        type = Arrays.copyOf(type, newCapacity);
+        state = Arrays.copyOf(state, newCapacity);
+        output = Arrays.copyOf(output, newCapacity);
+        Arrays.fill(output, oldCapacity, newCapacity, -1);
+    }
+
+    // Accès par identifiant (non vérifié : voir exists)
+    public float getX(int id) { return nodeX[id]; }
+    public float getY(int id) { return nodeY[id]; }
+    public int getBuffered(int id) { return buffered[id]; }
+    public float getProgress(int id) { return progress[id]; }
+    public boolean isAttached(int id) { return state[id] == ATTACHED; }
+    public ResourceNode.ResourceType getType(int id) { return TYPES[type[id]]; }
+
+    public int size() { return count; }
+    public int getOutputCount() { return outputCount; }
+    public Inventory getOutput(int index) { return outputs[index]; }
+    /** Pour parcourir les foreuses : for (id = 0; id < getIdCount(); id++) if (exists(id)) ... */
+    public int getIdCount() { return highWater; }
+    public long getTickCount() { return ticks; }
+    public long getExtractedCount() { return extracted; }
+    public long getLastTickNanos() { return lastTickNanos; }
+    public long getMaxTickNanos() { return maxTickNanos; }
+
+    @Override
+    public String toString() {
+        return "DrillSystem{drills=" + count + ", ticks=" + ticks + ", extracted=" + extracted +
+            ", lastTick=" + lastTickNanos / 1000 + "us, maxTick=" + maxTickNanos / 1000 + "us}";
+    }
+}
@@ -0,0 +1,140 @@
+package com.alexdev.factory.resource;
+
+import com.badlogic.gdx.utils.LongMap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * État des nodes qui ne correspond plus à leur état d'origine (entamés ou épuisés).
+ * Les nodes se régénèrent à l'identique à partir de la graine (ResourceManager.generateChunkNodes) :
+ * seule la quantité restante des nodes modifiés est gardée, par chunk et par point de génération.
+ * Un chunk sans node modifié n'a pas d'entrée.
+ *
+ * À utiliser depuis le thread de rendu.
+ */
+public class NodeDeltaStore {
+
+    public static final int NONE = -1; // node dans son état d'origine
+
+    private static final int FILE_MAGIC = 0x4E444C54; // "NDLT"
+    private static final int FILE_VERSION = 1;
+
+    /**
+     * Quantités restantes des nodes modifiés d'un chunk
+     */
+    private static final class ChunkDeltas {
+        byte[] points = new byte[2];
+        int[] amounts = new int[2];
+        int count;
+
+        int indexOf(int point) {
+            for (int i = 0; i < count; i++) {
+                if (points[i] == point) return i;
+            }
+            return -1;
+        }
+    }
+
+    private final LongMap<ChunkDeltas> chunks = new LongMap<>();
+    private int nodeCount;
+
+    /**
+     * Quantité restante enregistrée du node, ou NONE s'il n'a pas été modifié
+     * @param point index du point de génération dans le chunk
+     */
+    public int get(long chunkKey, int point) {
+        ChunkDeltas deltas = chunks.get(chunkKey);
+        if (deltas == null) return NONE;
+        int index = deltas.indexOf(point);
+        return index < 0 ? NONE : deltas.amounts[index];
+    }
+
+    /**
+     * Enregistre la quantité restante d'un node modifié
+     */
+    public void put(long chunkKey, int point, int amount) {
+        ChunkDeltas deltas = chunks.get(chunkKey);
+        if (deltas == null) {
+            deltas = new ChunkDeltas();
+            chunks.put(chunkKey, deltas);
+        }
+
+        int index = deltas.indexOf(point);
+        if (index < 0) {
+            if (deltas.count == deltas.points.length) {
+                deltas.points = Arrays.copyOf(deltas.points, deltas.count * 2);
+                deltas.amounts = Arrays.copyOf(deltas.amounts, deltas.count * 2);
+            }
+            index = deltas.count++;
+            deltas.points[index] = (byte) point;
+            nodeCount++;
+        }
+        deltas.amounts[index] = amount;
+    }
+
+    public boolean hasChunk(long chunkKey) {
+        return chunks.containsKey(chunkKey);
+    }
+
+    public void clear() {
+        chunks.clear();
+        nodeCount = 0;
+    }
+
+    public int getChunkCount() { return chunks.size; }
+    public int getNodeCount() { return nodeCount; }
+
+    /**
+     * Mémoire approximative occupée par les entrées
+     */
+    public long getMemoryBytes() {
+        return chunks.size * 64L + nodeCount * 5L;
+    }
+
+    /**
+     * Écrit toutes les entrées (format binaire versionné)
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        out.writeInt(chunks.size);
+        for (LongMap.Entry<ChunkDeltas> entry : chunks.entries()) {
+            ChunkDeltas deltas = entry.value;
+            out.writeLong(entry.key);
+            out.writeByte(deltas.count);
+            for (int i = 0; i < deltas.count; i++) {
+                out.writeByte(deltas.points[i]);
+                out.writeInt(deltas.amounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Remplace les entrées par celles écrites par write
+     */
+    public void read(DataInput in) throws IOException {
+        if (in.readInt() != FILE_MAGIC) throw new IOException("not a node delta file");
+        int version = in.readInt();
+        if (version != FILE_VERSION) throw new IOException("unsupported node delta version " + version);
+
+        clear();
+        int count = in.readInt();
+        for (int c = 0; c < count; c++) {
+            long key = in.readLong();
+            int nodes = in.readUnsignedByte();
+            for (int i = 0; i < nodes; i++) {
+                int point = in.readUnsignedByte();
+                put(key, point, in.readInt());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NodeDeltaStore{chunks=" + chunks.size + ", nodes=" + nodeCount +
+            ", memory=" + getMemoryBytes() / 1024 + "KB}";
+    }
+}
@@ -0,0 +1,336 @@
+package com.alexdev.factory.resource;
+
+import com.badlogic.gdx.graphics.Color;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Nodes de ressources rangés par colonnes : un tableau primitif par champ (position, taille,
+ * quantités, type, état), indexés par emplacement. Les parcours de tout l'ensemble
+ * (comptages, déchargement) lisent des tableaux contigus au lieu de suivre des références.
+ *
+ * Un node est désigné par un handle stable : son emplacement (24 bits de poids faible)
+ * et la génération de cet emplacement, incrémentée à chaque suppression.
+ * Les emplacements libérés sont réutilisés (pile d'emplacements libres) ;
+ * un handle périmé est reconnu par isValid.
+ *
+ * La couleur (RGBA8888) et la taille affichées sont gardées en cache et ne sont recalculées
+ * que lorsque la quantité restante change (flag DISPLAY_DIRTY).
+ *
+ * ResourceNode est une vue sur un node du store, créée à la demande et gardée
+ * tant que le node existe. À utiliser depuis le thread de rendu.
+ */
+public class NodeStore {
+
+    public static final int NO_NODE = -1;
+    public static final int MAX_NODES = 1 << 24;
+
+    private static final int SLOT_MASK = MAX_NODES - 1;
+    private static final int GENERATION_SHIFT = 24;
+    private static final int GENERATION_MASK = 0x7F; // handles toujours positifs
+
+    // Bits de flags
+    static final byte LIVE = 1;
+    static final byte DEPLETED = 2;
+    static final byte BEING_MINED = 4;
+    static final byte DISPLAY_DIRTY = 8;
+
+    private static final int DEPLETED_COLOR = Color.rgba8888(0.3f, 0.3f, 0.3f, 0.5f);
+
+    private static final ResourceNode.ResourceType[] TYPES = ResourceNode.ResourceType.values();
+
+    /**
+     * Prévenu après chaque changement de quantité restante (minage, restauration d'un delta)
+     */
+    public interface AmountListener {
+        void amountChanged(int handle, int oldAmount);
+    }
+
+    // Colonnes (lues directement par ResourceNode)
+    float[] x;
+    float[] y;
+    float[] size;
+    float[] miningProgress;
+    int[] amount;
+    int[] maxAmount;
+    byte[] type;
+    byte[] flags;
+    private int[] displayColor;
+    private float[] displaySize;
+    private byte[] generation;
+    private ResourceNode[] views;
+
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int highWater; // emplacements [0, highWater) déjà utilisés au moins une fois
+    private int count;
+    private AmountListener amountListener;
+
+    public NodeStore() {
+        this(64);
+    }
+
+    public NodeStore(int initialCapacity) {
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    /**
+     * Ajoute un node
+     * @return son handle
+     */
+    public int add(ResourceNode.ResourceType nodeType, float nodeX, float nodeY, float nodeSize, int nodeAmount, int nodeMaxAmount) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (highWater == MAX_NODES) throw new IllegalStateException("NodeStore is full (" + MAX_NODES + " nodes)");
+            if (highWater == x.length) allocate(Math.min(MAX_NODES, x.length * 2));
+            slot = highWater++;
+        }
+
+        x[slot] = nodeX;
+        y[slot] = nodeY;
+        size[slot] = nodeSize;
+        amount[slot] = nodeAmount;
+        maxAmount[slot] = nodeMaxAmount;
+        miningProgress[slot] = 0;
+        type[slot] = (byte) nodeType.ordinal();
+        flags[slot] = (byte) (LIVE | DISPLAY_DIRTY |
+            (nodeAmount <= 0 && nodeType != ResourceNode.ResourceType.OIL ? DEPLETED : 0));
+        count++;
+        return handle(slot);
+    }
+
+    /**
+     * Ajoute un node neuf dont la taille et la quantité sont tirées de random
+     * (toujours deux tirages nextFloat, même pour le pétrole)
+     * @return son handle
+     */
+    public int addRandom(ResourceNode.ResourceType nodeType, float nodeX, float nodeY, Random random) {
+        return addRandom(nodeType, nodeX, nodeY, nodeType.minAmount, nodeType.maxAmount, random);
+    }
+
+    /**
+     * Comme addRandom(nodeType, nodeX, nodeY, random), avec les quantités d'une SpawnTable
+     * @return son handle
+     */
+    public int addRandom(ResourceNode.ResourceType nodeType, float nodeX, float nodeY, int minAmount, int maxAmount, Random random) {
+        float nodeSize = 40 + (int) (random.nextFloat() * 21); // Taille variable (au plus ResourceNode.MAX_SIZE)
+        float amountRoll = random.nextFloat();
+
+        // Le pétrole est infini
+        int nodeMaxAmount = nodeType == ResourceNode.ResourceType.OIL ? Integer.MAX_VALUE
+            : minAmount + (int) (amountRoll * (maxAmount - minAmount + 1));
+        return add(nodeType, nodeX, nodeY, nodeSize, nodeMaxAmount, nodeMaxAmount);
+    }
+
+    /**
+     * Copie un node d'un autre store
+     * @return le handle de la copie
+     */
+    public int copy(NodeStore source, int sourceHandle) {
+        int from = slotOf(sourceHandle);
+        int handle = add(TYPES[source.type[from]], source.x[from], source.y[from], source.size[from],
+            source.amount[from], source.maxAmount[from]);
+        int to = slotOf(handle);
+        flags[to] = (byte) (source.flags[from] | DISPLAY_DIRTY);
+        miningProgress[to] = source.miningProgress[from];
+        return handle;
+    }
+
+    /**
+     * Supprime un node. Sa vue, si elle existe, est invalidée (ResourceNode.isRemoved).
+     * @return false si le handle était périmé
+     */
+    public boolean remove(int handle) {
+        if (!isValid(handle)) return false;
+
+        int slot = slotOf(handle);
+        ResourceNode view = views[slot];
+        if (view != null) {
+            view.invalidate();
+            views[slot] = null;
+        }
+
+        flags[slot] = 0;
+        generation[slot] = (byte) ((generation[slot] + 1) & GENERATION_MASK);
+        if (freeCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        freeSlots[freeCount++] = slot;
+        count--;
+        return true;
+    }
+
+    /**
+     * Change la quantité restante (et l'état épuisé qui en découle)
+     */
+    public void setAmount(int handle, int nodeAmount) {
+        int slot = slotOf(handle);
+        int oldAmount = amount[slot];
+        amount[slot] = nodeAmount;
+        if (nodeAmount <= 0 && type[slot] != ResourceNode.ResourceType.OIL.ordinal()) flags[slot] |= DEPLETED;
+        else flags[slot] &= ~DEPLETED;
+        flags[slot] |= DISPLAY_DIRTY;
+        if (amountListener != null && oldAmount != nodeAmount) amountListener.amountChanged(handle, oldAmount);
+    }
+
+    public void setAmountListener(AmountListener listener) {
+        this.amountListener = listener;
+    }
+
+    /**
+     * Couleur affichée du node (RGBA8888), assombrie quand il reste moins de ressources
+     */
+    public int getDisplayColor(int handle) {
+        int slot = slotOf(handle);
+        if ((flags[slot] & DISPLAY_DIRTY) != 0) updateDisplay(slot);
+        return displayColor[slot];
+    }
+
+    /**
+     * Taille affichée du node (plus petite quand il reste moins de ressources)
+     */
+    public float getDisplaySize(int handle) {
+        int slot = slotOf(handle);
+        if ((flags[slot] & DISPLAY_DIRTY) != 0) updateDisplay(slot);
+        return displaySize[slot];
+    }
+
+    private void updateDisplay(int slot) {
+        ResourceNode.ResourceType nodeType = TYPES[type[slot]];
+        Color color = nodeType.color;
+        if ((flags[slot] & DEPLETED) != 0) {
+            displayColor[slot] = DEPLETED_COLOR;
+            displaySize[slot] = size[slot] * 0.5f;
+        } else if (nodeType == ResourceNode.ResourceType.OIL) {
+            displayColor[slot] = Color.rgba8888(color.r, color.g, color.b, color.a);
+            displaySize[slot] = size[slot];
+        } else {
+            float shade = 0.5f + (float) amount[slot] / maxAmount[slot] * 0.5f;
+            displayColor[slot] = Color.rgba8888(color.r * shade, color.g * shade, color.b * shade, 1);
+            displaySize[slot] = size[slot] * shade;
+        }
+        flags[slot] &= ~DISPLAY_DIRTY;
+    }
+
+    public boolean isValid(int handle) {
+        if (handle < 0) return false;
+        int slot = slotOf(handle);
+        return slot < highWater && (flags[slot] & LIVE) != 0 &&
+            generation[slot] == (byte) ((handle >>> GENERATION_SHIFT) & GENERATION_MASK);
+    }
+
+    /**
+     * Vue du node (toujours la même instance tant que le node existe)
+     */
+    public ResourceNode view(int handle) {
+        int slot = slotOf(handle);
+        ResourceNode view = views[slot];
+        if (view == null) {
+            view = new ResourceNode(this, handle);
+            views[slot] = view;
+        }
+        return view;
+    }
+
+    void bindView(int handle, ResourceNode view) {
+        views[slotOf(handle)] = view;
+    }
+
+    /**
+     * Handle du node à l'emplacement slot, ou NO_NODE si l'emplacement est libre.
+     * Pour parcourir le store : for (slot = 0; slot < getSlotCount(); slot++).
+     */
+    public int handleAt(int slot) {
+        return (flags[slot] & LIVE) != 0 ? handle(slot) : NO_NODE;
+    }
+
+    public static int slotOf(int handle) {
+        return handle & SLOT_MASK;
+    }
+
+    private int handle(int slot) {
+        return (generation[slot] << GENERATION_SHIFT) | slot;
+    }
+
+    // Accès par handle (non vérifié : voir isValid)
+    public float getX(int handle) { return x[slotOf(handle)]; }
+    public float getY(int handle) { return y[slotOf(handle)]; }
+    public float getSize(int handle) { return size[slotOf(handle)]; }
+    public int getAmount(int handle) { return amount[slotOf(handle)]; }
+    public int getMaxAmount(int handle) { return maxAmount[slotOf(handle)]; }
+    public ResourceNode.ResourceType getType(int handle) { return TYPES[type[slotOf(handle)]]; }
+    public int getTypeOrdinal(int handle) { return type[slotOf(handle)]; }
+    public boolean isDepleted(int handle) { return (flags[slotOf(handle)] & DEPLETED) != 0; }
+    public boolean isBeingMined(int handle) { return (flags[slotOf(handle)] & BEING_MINED) != 0; }
+    public float getMiningProgress(int handle) { return miningProgress[slotOf(handle)]; }
+
+    /**
+     * Nombre de nodes d'un type (ou de tous les types si type est null), épuisés compris ou non
+     */
+    public int count(ResourceNode.ResourceType nodeType, boolean includeDepleted) {
+        int ordinal = nodeType == null ? -1 : nodeType.ordinal();
+        int result = 0;
+        for (int slot = 0; slot < highWater; slot++) {
+            byte f = flags[slot];
+            if ((f & LIVE) == 0 || (!includeDepleted && (f & DEPLETED) != 0)) continue;
+            if (ordinal < 0 || type[slot] == ordinal) result++;
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < highWater; slot++) {
+            if ((flags[slot] & LIVE) != 0) remove(handle(slot));
+        }
+    }
+
+    public int size() { return count; }
+    public int getSlotCount() { return highWater; }
+    public int getCapacity() { return x.length; }
+
+    /**
+     * Mémoire occupée par les colonnes (hors vues)
+     */
+    public long getMemoryBytes() {
+        long perSlot = 5 * 4 + 3 * 4 + 3 + 4; // 5 float, 3 int, 3 byte, référence de vue
+        return x.length * perSlot + freeSlots.length * 4L;
+    }
+
+    private void allocate(int capacity) {
+        if (x == null) {
+            x = new float[capacity];
+            y = new float[capacity];
+            size = new float[capacity];
+            miningProgress = new float[capacity];
+            amount = new int[capacity];
+            maxAmount = new int[capacity];
+            type = new byte[capacity];
+            flags = new byte[capacity];
+            displayColor = new int[capacity];
+            displaySize = new float[capacity];
+            generation = new byte[capacity];
+            views = new ResourceNode[capacity];
+            return;
+        }
+
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        size = Arrays.copyOf(size, capacity);
+        miningProgress = Arrays.copyOf(miningProgress, capacity);
+        amount = Arrays.copyOf(amount, capacity);
+        maxAmount = Arrays.copyOf(maxAmount, capacity);
+        type = Arrays.copyOf(type, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        displayColor = Arrays.copyOf(displayColor, capacity);
+        displaySize = Arrays.copyOf(displaySize, capacity);
+        generation = Arrays.copyOf(generation, capacity);
+        views = Arrays.copyOf(views, capacity);
+    }
+
+    @Override
+    public String toString() {
+        return "NodeStore{nodes=" + count + ", slots=" + highWater + ", capacity=" + x.length +
+            ", memory=" + getMemoryBytes() / 1024 + "KB}";
+    }
+}
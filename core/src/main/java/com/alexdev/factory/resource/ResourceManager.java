@@ -1,111 +1,513 @@
 package com.alexdev.factory.resource;
 
+import com.alexdev.factory.map.ChunkCache;
 import com.alexdev.factory.map.DevMap;
-import com.badlogic.gdx.math.MathUtils;
+import com.alexdev.factory.util.LongHashSet;
+import com.alexdev.factory.util.LongIntMap;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.IntArray;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Nodes de ressources en mémoire, rangés dans un NodeStore (colonnes primitives)
+ * et indexés par une SpatialHashGrid de handles. Les recherches parcourent les colonnes
+ * et ne créent une vue ResourceNode que pour les nodes qu'elles retournent.
+ */
 public class ResourceManager {
 
-    private List<ResourceNode> nodes;
+    // Écart entre deux points de génération, en tuiles
+    public static final int SPAWN_SPACING = 8;
+
+    // Points de génération par chunk
+    public static final int SPAWN_POINTS_PER_CHUNK = (ChunkCache.CHUNK_SIZE / SPAWN_SPACING) * (ChunkCache.CHUNK_SIZE / SPAWN_SPACING);
+
+    private static final int TILE_SIZE = 32; // pixels monde par tuile
+
+    private static final ResourceNode.ResourceType[] TYPES = ResourceNode.ResourceType.values();
+
+    // Côté des cellules de l'index spatial, en pixels (8 tuiles)
+    private static final float GRID_CELL_SIZE = 256;
+
+    /**
+     * Prévenu quand des nodes entrent dans le gestionnaire ou en sortent, et quand leur quantité
+     * restante change (minage, épuisement). Le handle désigne le node dans le store (encore valide
+     * pendant nodeRemoved, mais le node n'est déjà plus dans les résultats des recherches).
+     */
+    public interface NodeListener {
+        void nodeAdded(NodeStore store, int handle);
+        void nodeRemoved(NodeStore store, int handle);
+        void nodeChanged(NodeStore store, int handle, int oldAmount);
+    }
+
+    /**
+     * Reçoit un à un les nodes trouvés par une recherche (aucune liste n'est allouée)
+     */
+    public interface NodeVisitor {
+        void visit(ResourceNode node);
+    }
+
+    private final NodeStore store = new NodeStore(1024);
+    private final SpatialHashGrid grid = new SpatialHashGrid(store, GRID_CELL_SIZE);
     private DevMap map;
     private long seed;
+    private volatile SpawnTable spawnTable = SpawnTable.DEFAULT;
+    private final List<NodeListener> listeners = new ArrayList<>();
+
+    // Chunks dont les nodes sont en mémoire (clés ChunkCache.chunkKey)
+    private final LongHashSet generatedChunks = new LongHashSet(1024);
+    private final LongHashSet unloading = new LongHashSet();
+    // Chunks gardés en mémoire quelle que soit la distance, avec leur nombre de demandes (voir pinChunk)
+    private final LongIntMap pinnedChunks = new LongIntMap();
+    private final NodeDeltaStore deltas = new NodeDeltaStore();
+    private final int[] chunkHandles = new int[SPAWN_POINTS_PER_CHUNK];
+
+    // Distances et handles des résultats en cours de findKNearest (réutilisés d'un appel à l'autre)
+    private float[] nearestDistances = new float[8];
+    private int[] nearestHandles = new int[8];
 
     public ResourceManager(DevMap map, long seed) {
-        this.nodes = new ArrayList<>();
         this.map = map;
         this.seed = seed;
+        store.setAmountListener(this::amountChanged);
     }
 
     /**
-     * Génère des ressources dans une zone donnée
+     * Génère les ressources des chunks qui touchent une zone donnée (en tuiles).
+     * Chaque chunk n'est généré qu'une fois tant qu'il reste en mémoire (voir unloadDistantChunks).
      */
     public void generateResourcesInArea(int centerX, int centerY, int radius) {
-        int tileSize = 32;
-        int spacing = 8; // Checker tous les X tiles au lieu de tous
-
-        for (int x = centerX - radius; x <= centerX + radius; x += spacing) {
-            for (int y = centerY - radius; y <= centerY + radius; y += spacing) {
-                // Vérifier si cette position a déjà des ressources
-                if (hasResourceAt(x * tileSize, y * tileSize)) continue;
-
-                // Hash déterministe basé sur la position
-                long hash = (long) x * 374761393L + (long) y * 668265263L + seed;
-                float chance = ((hash & 0xFFFF) / (float) 0xFFFF);
-
-                ResourceNode.ResourceType type = null;
-
-                // Probabilités de spawn selon le biome
-                int tileType = map.getTile(x, y);
-
-                // 0 = herbe, 1 = route, 2 = eau, 3 = forêt, 4 = sable, 5 = pierre
-                switch (tileType) {
-                    case 5: // Montagne/Pierre
-                        if (chance < 0.08f) type = ResourceNode.ResourceType.IRON;
-                        else if (chance < 0.14f) type = ResourceNode.ResourceType.COPPER;
-                        else if (chance < 0.20f) type = ResourceNode.ResourceType.STONE;
-                        break;
-
-                    case 3: // Forêt
-                        if (chance < 0.06f) type = ResourceNode.ResourceType.COAL;
-                        else if (chance < 0.10f) type = ResourceNode.ResourceType.COPPER;
-                        break;
-
-                    case 0: // Prairie
-                        if (chance < 0.03f) type = ResourceNode.ResourceType.IRON;
-                        else if (chance < 0.05f) type = ResourceNode.ResourceType.COAL;
-                        break;
-
-                    case 4: // Sable/Plage
-                        if (chance < 0.10f) type = ResourceNode.ResourceType.OIL;
-                        break;
-                }
+        int minCx = (centerX - radius) >> ChunkCache.CHUNK_SHIFT;
+        int maxCx = (centerX + radius) >> ChunkCache.CHUNK_SHIFT;
+        int minCy = (centerY - radius) >> ChunkCache.CHUNK_SHIFT;
+        int maxCy = (centerY + radius) >> ChunkCache.CHUNK_SHIFT;
 
-                // Créer le node si un type a été déterminé
-                if (type != null) {
-                    float worldX = x * tileSize + MathUtils.random(-15, 15);
-                    float worldY = y * tileSize + MathUtils.random(-15, 15);
-                    nodes.add(new ResourceNode(type, worldX, worldY));
-                }
+        for (int cx = minCx; cx <= maxCx; cx++) {
+            for (int cy = minCy; cy <= maxCy; cy++) {
+                generateChunk(cx, cy);
             }
         }
     }
 
     /**
-     * Vérifie si une ressource existe déjà à cette position
+     * Génère les nodes du chunk (cx, cy) s'il n'est pas en mémoire,
+     * en leur rendant l'état enregistré dans le NodeDeltaStore
+     * @return false si le chunk était déjà en mémoire
      */
-    private boolean hasResourceAt(float x, float y) {
-        for (ResourceNode node : nodes) {
-            float dx = node.getX() - x;
-            float dy = node.getY() - y;
-            if (dx * dx + dy * dy < 150 * 150) { // Distance minimum augmentée
-                return true;
+    public boolean generateChunk(int cx, int cy) {
+        if (!claimChunk(cx, cy)) return false;
+
+        long key = ChunkCache.chunkKey(cx, cy);
+        int count = generateChunkNodes(cx, cy, store, chunkHandles);
+        for (int i = 0; i < count; i++) {
+            restoreAndRegister(key, chunkHandles[i]);
+        }
+        return true;
+    }
+
+    /**
+     * Marque le chunk (cx, cy) comme en mémoire, avant d'y ajouter ses nodes générés ailleurs
+     * (voir ResourceSpawnService et addGeneratedNode)
+     * @return false si le chunk était déjà en mémoire
+     */
+    public boolean claimChunk(int cx, int cy) {
+        return generatedChunks.add(ChunkCache.chunkKey(cx, cy));
+    }
+
+    public boolean isChunkGenerated(int cx, int cy) {
+        return generatedChunks.contains(ChunkCache.chunkKey(cx, cy));
+    }
+
+    /**
+     * Garde le chunk (cx, cy) en mémoire (foreuses...) : unloadDistantChunks ne le retire plus
+     * tant qu'il n'a pas été libéré par autant d'appels à unpinChunk. Le génère s'il ne l'est pas.
+     */
+    public void pinChunk(int cx, int cy) {
+        long key = ChunkCache.chunkKey(cx, cy);
+        pinnedChunks.put(key, pinnedChunks.get(key, 0) + 1);
+        generateChunk(cx, cy);
+    }
+
+    public void unpinChunk(int cx, int cy) {
+        long key = ChunkCache.chunkKey(cx, cy);
+        int pins = pinnedChunks.get(key, 0);
+        if (pins <= 1) {
+            pinnedChunks.remove(key, 0);
+        } else {
+            pinnedChunks.put(key, pins - 1);
+        }
+    }
+
+    public boolean isChunkPinned(int cx, int cy) {
+        return pinnedChunks.containsKey(ChunkCache.chunkKey(cx, cy));
+    }
+
+    /**
+     * Ajoute un node d'origine du chunk (cx, cy) généré dans un autre store (par generateChunkNodes),
+     * en lui rendant l'état enregistré dans le NodeDeltaStore
+     */
+    public void addGeneratedNode(int cx, int cy, NodeStore source, int sourceHandle) {
+        restoreAndRegister(ChunkCache.chunkKey(cx, cy), store.copy(source, sourceHandle));
+    }
+
+    private void restoreAndRegister(long chunkKey, int handle) {
+        register(handle); // les listeners voient ensuite la restauration comme un changement
+        if (deltas.hasChunk(chunkKey)) {
+            int amount = deltas.get(chunkKey, spawnPoint(handle));
+            if (amount != NodeDeltaStore.NONE) store.setAmount(handle, amount);
+        }
+    }
+
+    /**
+     * Retire de la mémoire les chunks dont la distance (en chunks) au chunk de (centerX, centerY)
+     * dépasse celle de radius tuiles. L'état des nodes modifiés est gardé dans le NodeDeltaStore ;
+     * les autres seront régénérés à l'identique. Les chunks épinglés (pinChunk) restent en mémoire.
+     * @return nombre de chunks retirés
+     */
+    public int unloadDistantChunks(int centerX, int centerY, int radius) {
+        int centerCx = centerX >> ChunkCache.CHUNK_SHIFT;
+        int centerCy = centerY >> ChunkCache.CHUNK_SHIFT;
+        int chunkRadius = (radius + ChunkCache.CHUNK_MASK) >> ChunkCache.CHUNK_SHIFT;
+
+        unloading.clear();
+        for (long key : generatedChunks.toArray()) {
+            if (pinnedChunks.containsKey(key)) continue;
+            if (Math.abs(ChunkCache.chunkX(key) - centerCx) > chunkRadius ||
+                Math.abs(ChunkCache.chunkY(key) - centerCy) > chunkRadius) {
+                unloading.add(key);
+                generatedChunks.remove(key);
+            }
+        }
+        if (unloading.isEmpty()) return 0;
+
+        // Un seul passage sur les colonnes du store
+        for (int slot = 0; slot < store.getSlotCount(); slot++) {
+            int handle = store.handleAt(slot);
+            if (handle != NodeStore.NO_NODE && unloading.contains(chunkKeyOf(handle))) {
+                recordDelta(handle);
+                removeNode(handle);
             }
         }
-        return false;
+        return unloading.size();
+    }
+
+    /**
+     * Reporte dans le NodeDeltaStore l'état de tous les nodes en mémoire (avant un enregistrement)
+     */
+    public void recordDeltas() {
+        for (int slot = 0; slot < store.getSlotCount(); slot++) {
+            int handle = store.handleAt(slot);
+            if (handle != NodeStore.NO_NODE) recordDelta(handle);
+        }
+    }
+
+    private void recordDelta(int handle) {
+        int amount = store.getAmount(handle);
+        if (amount != store.getMaxAmount(handle)) {
+            deltas.put(chunkKeyOf(handle), spawnPoint(handle), amount);
+        }
+    }
+
+    /**
+     * Chunk d'un node (celui de son point de génération)
+     */
+    private long chunkKeyOf(int handle) {
+        return ChunkCache.chunkKey(tileOf(store.getX(handle)) >> ChunkCache.CHUNK_SHIFT,
+            tileOf(store.getY(handle)) >> ChunkCache.CHUNK_SHIFT);
+    }
+
+    /**
+     * Index du point de génération d'un node dans son chunk
+     */
+    private int spawnPoint(int handle) {
+        int pointsPerRow = ChunkCache.CHUNK_SIZE / SPAWN_SPACING;
+        int lx = (tileOf(store.getX(handle)) & ChunkCache.CHUNK_MASK) / SPAWN_SPACING;
+        int ly = (tileOf(store.getY(handle)) & ChunkCache.CHUNK_MASK) / SPAWN_SPACING;
+        return ly * pointsPerRow + lx;
+    }
+
+    private static int tileOf(float worldCoordinate) {
+        return (int) Math.floor(worldCoordinate / TILE_SIZE);
+    }
+
+    /**
+     * Ajoute à out les nodes d'origine du chunk (cx, cy), sans les enregistrer dans le gestionnaire.
+     * @return nombre de nodes ajoutés
+     */
+    public int generateChunkNodes(int cx, int cy, List<ResourceNode> out) {
+        NodeStore generated = new NodeStore(SPAWN_POINTS_PER_CHUNK);
+        int[] handles = new int[SPAWN_POINTS_PER_CHUNK];
+        int count = generateChunkNodes(cx, cy, generated, handles);
+        for (int i = 0; i < count; i++) {
+            out.add(generated.view(handles[i]));
+        }
+        return count;
+    }
+
+    /**
+     * Ajoute à out les nodes d'origine du chunk (cx, cy).
+     * Déterministe : un point de génération tous les SPAWN_SPACING tuiles, sur une grille alignée
+     * sur le monde, et un générateur aléatoire initialisé par la graine et le chunk.
+     * Chaque point consomme toujours quatre tirages, qu'il porte un node ou non,
+     * pour que les autres points du chunk ne dépendent pas de son type.
+     * Le biome est celui du terrain procédural (DevMap.getBaseTile) : les modifications
+     * des joueurs ne changent pas les nodes régénérés, auxquels s'appliquent les deltas enregistrés.
+     * Un node reste dans la tuile de son point, donc dans ce chunk.
+     * Peut être appelé depuis un autre thread si out n'est utilisé que par lui.
+     * @param handles reçoit les handles des nodes ajoutés (SPAWN_POINTS_PER_CHUNK cases), peut être null
+     * @return nombre de nodes ajoutés
+     */
+    public int generateChunkNodes(int cx, int cy, NodeStore out, int[] handles) {
+        RandomXS128 random = new RandomXS128(chunkSeed(cx, cy));
+        SpawnTable table = spawnTable;
+
+        int added = 0;
+        int baseX = cx << ChunkCache.CHUNK_SHIFT;
+        int baseY = cy << ChunkCache.CHUNK_SHIFT;
+        for (int ly = 0; ly < ChunkCache.CHUNK_SIZE; ly += SPAWN_SPACING) {
+            for (int lx = 0; lx < ChunkCache.CHUNK_SIZE; lx += SPAWN_SPACING) {
+                int x = baseX + lx;
+                int y = baseY + ly;
+                float worldX = x * TILE_SIZE + random.nextInt(TILE_SIZE);
+                float worldY = y * TILE_SIZE + random.nextInt(TILE_SIZE);
+
+                int ordinal = table.sample(map.getBaseTile(x, y), spawnChance(x, y));
+                if (ordinal == SpawnTable.NONE) {
+                    // Tirages de taille et de quantité du node absent
+                    random.nextFloat();
+                    random.nextFloat();
+                    continue;
+                }
+
+                int handle = out.addRandom(TYPES[ordinal], worldX, worldY,
+                    table.getMinAmount(ordinal), table.getMaxAmount(ordinal), random);
+                if (handles != null) handles[added] = handle;
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Graine du générateur aléatoire d'un chunk
+     */
+    private long chunkSeed(int cx, int cy) {
+        return seed ^ (cx * 0x9E3779B97F4A7C15L) ^ (cy * 0xC2B2AE3D27D4EB4FL);
+    }
+
+    public NodeDeltaStore getDeltas() {
+        return deltas;
+    }
+
+    public NodeStore getStore() {
+        return store;
+    }
+
+    public int getResidentChunkCount() {
+        return generatedChunks.size();
+    }
+
+    /**
+     * Type de ressource qui apparaît au point de génération (x, y) (en tuiles), ou null.
+     * Déterministe : ne dépend que de la graine, de la position et du type procédural de la tuile.
+     */
+    public ResourceNode.ResourceType spawnTypeAt(int x, int y) {
+        return spawnType(map.getBaseTile(x, y), spawnChance(x, y));
+    }
+
+    /**
+     * Règles de génération (probabilités par biome et quantités).
+     * À changer avant de générer : les chunks déjà en mémoire ne sont pas régénérés.
+     */
+    public void setSpawnTable(SpawnTable spawnTable) {
+        this.spawnTable = spawnTable;
+    }
+
+    public SpawnTable getSpawnTable() {
+        return spawnTable;
+    }
+
+    /**
+     * Tirage déterministe (entre 0 et 1) du point de génération (x, y)
+     */
+    public float spawnChance(int x, int y) {
+        long hash = (long) x * 374761393L + (long) y * 668265263L + seed;
+        return (hash & 0xFFFF) / (float) 0xFFFF;
+    }
+
+    /**
+     * Type de ressource pour le type de tuile et le tirage d'un point de génération, ou null
+     */
+    public ResourceNode.ResourceType spawnType(int tileType, float chance) {
+        int ordinal = spawnTable.sample(tileType, chance);
+        return ordinal == SpawnTable.NONE ? null : TYPES[ordinal];
+    }
+
+    /**
+     * Ajoute des nodes existants (par exemple rechargés depuis le disque).
+     * Ils sont recopiés dans le store ; chaque ResourceNode devient la vue de sa copie.
+     */
+    public void addNodes(List<ResourceNode> loaded) {
+        for (ResourceNode node : loaded) {
+            int handle = store.copy(node.getStore(), node.getHandle());
+            node.bind(store, handle);
+            register(handle);
+        }
+    }
+
+    private void register(int handle) {
+        grid.add(handle);
+        for (NodeListener listener : listeners) listener.nodeAdded(store, handle);
+    }
+
+    private void removeNode(int handle) {
+        grid.remove(handle); // les recherches des listeners ne le trouvent plus
+        for (NodeListener listener : listeners) listener.nodeRemoved(store, handle);
+        store.remove(handle);
+    }
+
+    private void amountChanged(int handle, int oldAmount) {
+        for (NodeListener listener : listeners) listener.nodeChanged(store, handle, oldAmount);
+    }
+
+    public void addNodeListener(NodeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeNodeListener(NodeListener listener) {
+        listeners.remove(listener);
     }
 
     /**
      * Trouve le node le plus proche du joueur dans une certaine portée
      */
     public ResourceNode findNearestNode(float playerX, float playerY, float maxRange) {
-        ResourceNode nearest = null;
-        float minDistance = maxRange;
+        return findNearest(playerX + 25, playerY + 25, maxRange, null, false); // 25 = moitié du joueur
+    }
+
+    /**
+     * Node dont le centre est le plus proche de (x, y), à moins de maxRange
+     * @param type type recherché, ou null pour tous
+     * @param includeDepleted vrai pour accepter les nodes épuisés
+     */
+    public ResourceNode findNearest(float x, float y, float maxRange,
+                                    ResourceNode.ResourceType type, boolean includeDepleted) {
+        int nearest = NodeStore.NO_NODE;
+        float minDistance = maxRange * maxRange;
+        int ordinal = type == null ? -1 : type.ordinal();
 
-        for (ResourceNode node : nodes) {
-            if (node.isDepleted()) continue;
+        // Centre d'un node dans la portée : son coin est au plus MAX_SIZE / 2 avant ce centre
+        float margin = ResourceNode.MAX_SIZE / 2;
+        int minCellX = grid.cellOf(x - maxRange - margin);
+        int maxCellX = grid.cellOf(x + maxRange);
+        int minCellY = grid.cellOf(y - maxRange - margin);
+        int maxCellY = grid.cellOf(y + maxRange);
 
-            float dx = (node.getX() + node.getSize() / 2) - (playerX + 25);
-            float dy = (node.getY() + node.getSize() / 2) - (playerY + 25);
-            float distance = (float) Math.sqrt(dx * dx + dy * dy);
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                SpatialHashGrid.Cell cell = grid.getCell(cx, cy);
+                if (cell == null) continue;
 
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearest = node;
+                for (int i = 0; i < cell.size(); i++) {
+                    int handle = cell.get(i);
+                    if (!matches(handle, ordinal, includeDepleted)) continue;
+
+                    float distance = centerDistance2(handle, x, y);
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        nearest = handle;
+                    }
+                }
             }
         }
 
-        return nearest;
+        return nearest == NodeStore.NO_NODE ? null : store.view(nearest);
+    }
+
+    /**
+     * Les out.length nodes les plus proches de (x, y) (centre à moins de maxRange), du plus proche au plus lointain
+     * @return nombre de nodes trouvés (les cases suivantes de out sont mises à null)
+     */
+    public int findKNearest(float x, float y, float maxRange, ResourceNode.ResourceType type,
+                            boolean includeDepleted, ResourceNode[] out) {
+        int k = out.length;
+        if (k == 0) return 0;
+        if (nearestDistances.length < k) {
+            nearestDistances = new float[k];
+            nearestHandles = new int[k];
+        }
+        float[] distances = nearestDistances;
+        int[] handles = nearestHandles;
+        int found = 0;
+        float maxDistance = maxRange * maxRange;
+        int ordinal = type == null ? -1 : type.ordinal();
+
+        float margin = ResourceNode.MAX_SIZE / 2;
+        int minCellX = grid.cellOf(x - maxRange - margin);
+        int maxCellX = grid.cellOf(x + maxRange);
+        int minCellY = grid.cellOf(y - maxRange - margin);
+        int maxCellY = grid.cellOf(y + maxRange);
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                SpatialHashGrid.Cell cell = grid.getCell(cx, cy);
+                if (cell == null) continue;
+
+                for (int i = 0; i < cell.size(); i++) {
+                    int handle = cell.get(i);
+                    if (!matches(handle, ordinal, includeDepleted)) continue;
+
+                    float distance = centerDistance2(handle, x, y);
+                    if (distance >= maxDistance || (found == k && distance >= distances[k - 1])) continue;
+
+                    // Insertion triée (k est petit)
+                    int position = found < k ? found++ : k - 1;
+                    while (position > 0 && distances[position - 1] > distance) {
+                        distances[position] = distances[position - 1];
+                        handles[position] = handles[position - 1];
+                        position--;
+                    }
+                    distances[position] = distance;
+                    handles[position] = handle;
+                }
+            }
+        }
+
+        for (int i = 0; i < found; i++) out[i] = store.view(handles[i]);
+        for (int i = found; i < k; i++) out[i] = null;
+        return found;
+    }
+
+    /**
+     * Remplace le contenu de out par les nodes dont le centre est à moins de radius de (x, y)
+     * @return nombre de nodes trouvés
+     */
+    public int findInRadius(float x, float y, float radius, ResourceNode.ResourceType type,
+                            boolean includeDepleted, List<ResourceNode> out) {
+        out.clear();
+        float maxDistance = radius * radius;
+        int ordinal = type == null ? -1 : type.ordinal();
+
+        float margin = ResourceNode.MAX_SIZE / 2;
+        int minCellX = grid.cellOf(x - radius - margin);
+        int maxCellX = grid.cellOf(x + radius);
+        int minCellY = grid.cellOf(y - radius - margin);
+        int maxCellY = grid.cellOf(y + radius);
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                SpatialHashGrid.Cell cell = grid.getCell(cx, cy);
+                if (cell == null) continue;
+
+                for (int i = 0; i < cell.size(); i++) {
+                    int handle = cell.get(i);
+                    if (matches(handle, ordinal, includeDepleted) && centerDistance2(handle, x, y) < maxDistance) {
+                        out.add(store.view(handle));
+                    }
+                }
+            }
+        }
+        return out.size();
     }
 
     /**
@@ -113,52 +515,150 @@ public class ResourceManager {
      */
     public List<ResourceNode> getNodesInArea(float minX, float minY, float maxX, float maxY) {
         List<ResourceNode> visible = new ArrayList<>();
+        getNodesInArea(minX, minY, maxX, maxY, visible);
+        return visible;
+    }
 
-        for (ResourceNode node : nodes) {
-            if (node.getX() + node.getSize() >= minX &&
-                node.getX() <= maxX &&
-                node.getY() + node.getSize() >= minY &&
-                node.getY() <= maxY) {
-                visible.add(node);
+    /**
+     * Remplace le contenu de out par les nodes visibles dans une zone (sans allocation si out est assez grand
+     * et que les vues de ces nodes existent déjà)
+     * @return nombre de nodes trouvés
+     */
+    public int getNodesInArea(float minX, float minY, float maxX, float maxY, List<ResourceNode> out) {
+        out.clear();
+        int minCellX = grid.cellOf(minX - ResourceNode.MAX_SIZE);
+        int maxCellX = grid.cellOf(maxX);
+        int minCellY = grid.cellOf(minY - ResourceNode.MAX_SIZE);
+        int maxCellY = grid.cellOf(maxY);
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                SpatialHashGrid.Cell cell = grid.getCell(cx, cy);
+                if (cell == null) continue;
+
+                for (int i = 0; i < cell.size(); i++) {
+                    int handle = cell.get(i);
+                    if (overlaps(handle, minX, minY, maxX, maxY)) out.add(store.view(handle));
+                }
             }
         }
+        return out.size();
+    }
 
-        return visible;
+    /**
+     * Remplace le contenu de out par les handles (dans getStore()) des nodes visibles dans une zone.
+     * Ne crée aucune vue : pour les parcours par frame sur beaucoup de nodes.
+     * @return nombre de nodes trouvés
+     */
+    public int getHandlesInArea(float minX, float minY, float maxX, float maxY, IntArray out) {
+        out.clear();
+        int minCellX = grid.cellOf(minX - ResourceNode.MAX_SIZE);
+        int maxCellX = grid.cellOf(maxX);
+        int minCellY = grid.cellOf(minY - ResourceNode.MAX_SIZE);
+        int maxCellY = grid.cellOf(maxY);
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                SpatialHashGrid.Cell cell = grid.getCell(cx, cy);
+                if (cell == null) continue;
+
+                for (int i = 0; i < cell.size(); i++) {
+                    int handle = cell.get(i);
+                    if (overlaps(handle, minX, minY, maxX, maxY)) out.add(handle);
+                }
+            }
+        }
+        return out.size;
+    }
+
+    /**
+     * Passe au visiteur les nodes visibles dans une zone, filtrés par type et épuisement
+     * @param type type recherché, ou null pour tous
+     */
+    public void forEachNodeInArea(float minX, float minY, float maxX, float maxY,
+                                  ResourceNode.ResourceType type, boolean includeDepleted, NodeVisitor visitor) {
+        int ordinal = type == null ? -1 : type.ordinal();
+        int minCellX = grid.cellOf(minX - ResourceNode.MAX_SIZE);
+        int maxCellX = grid.cellOf(maxX);
+        int minCellY = grid.cellOf(minY - ResourceNode.MAX_SIZE);
+        int maxCellY = grid.cellOf(maxY);
+
+        for (int cx = minCellX; cx <= maxCellX; cx++) {
+            for (int cy = minCellY; cy <= maxCellY; cy++) {
+                SpatialHashGrid.Cell cell = grid.getCell(cx, cy);
+                if (cell == null) continue;
+
+                for (int i = 0; i < cell.size(); i++) {
+                    int handle = cell.get(i);
+                    if (matches(handle, ordinal, includeDepleted) && overlaps(handle, minX, minY, maxX, maxY)) {
+                        visitor.visit(store.view(handle));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param ordinal ordinal du type recherché, ou -1 pour tous
+     */
+    private boolean matches(int handle, int ordinal, boolean includeDepleted) {
+        return (ordinal < 0 || store.getTypeOrdinal(handle) == ordinal) && (includeDepleted || !store.isDepleted(handle));
+    }
+
+    private boolean overlaps(int handle, float minX, float minY, float maxX, float maxY) {
+        float x = store.getX(handle);
+        float y = store.getY(handle);
+        float size = store.getSize(handle);
+        return x + size >= minX && x <= maxX && y + size >= minY && y <= maxY;
+    }
+
+    /**
+     * Carré de la distance entre le centre du node et (x, y)
+     */
+    private float centerDistance2(int handle, float x, float y) {
+        float half = store.getSize(handle) / 2;
+        float dx = store.getX(handle) + half - x;
+        float dy = store.getY(handle) + half - y;
+        return dx * dx + dy * dy;
     }
 
     /**
      * Nettoie les nodes épuisés (optionnel, pour économiser la mémoire)
      */
     public void cleanupDepleted() {
-        nodes.removeIf(ResourceNode::isDepleted);
+        for (int slot = 0; slot < store.getSlotCount(); slot++) {
+            int handle = store.handleAt(slot);
+            if (handle != NodeStore.NO_NODE && store.isDepleted(handle)) {
+                recordDelta(handle); // sinon il réapparaîtrait plein au retour du chunk
+                removeNode(handle);
+            }
+        }
     }
 
     /**
      * Compte le nombre de nodes par type
      */
     public int countNodesByType(ResourceNode.ResourceType type) {
-        int count = 0;
-        for (ResourceNode node : nodes) {
-            if (node.getType() == type && !node.isDepleted()) {
-                count++;
-            }
-        }
-        return count;
+        return store.count(type, false);
     }
 
+    /**
+     * Vues de tous les nodes en mémoire (crée les vues manquantes : à éviter sur de grands ensembles)
+     */
     public List<ResourceNode> getAllNodes() {
-        return nodes;
+        List<ResourceNode> all = new ArrayList<>(store.size());
+        for (int slot = 0; slot < store.getSlotCount(); slot++) {
+            int handle = store.handleAt(slot);
+            if (handle != NodeStore.NO_NODE) all.add(store.view(handle));
+        }
+        return all;
     }
 
     public int getTotalNodes() {
-        return nodes.size();
+        return store.size();
     }
 
     public int getActiveNodes() {
-        int count = 0;
-        for (ResourceNode node : nodes) {
-            if (!node.isDepleted()) count++;
-        }
-        return count;
+        return store.count(null, false);
     }
 }
@@ -3,6 +3,14 @@ package com.alexdev.factory.resource;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.math.MathUtils;
 
+import java.util.Random;
+
+/**
+ * Vue sur un node d'un NodeStore : les champs sont lus et écrits dans les colonnes du store.
+ * Un node créé par constructeur vit dans un store à lui jusqu'à ce que ResourceManager
+ * le recopie dans le sien. Une vue dont le node est supprimé est invalidée (isRemoved)
+ * et ne doit plus être lue : qui garde une vue d'une frame à l'autre le vérifie.
+ */
 public class ResourceNode {
 
     public enum ResourceType {
@@ -25,33 +33,68 @@ public class ResourceNode {
         }
     }
 
-    private final ResourceType type;
-    private final float x, y;
-    private final float size;
-    private int amount;
-    private final int maxAmount;
-    private boolean depleted;
-    private float miningProgress;
-    private boolean beingMined;
+    // Taille maximale d'un node, en pixels (marge des recherches spatiales)
+    public static final float MAX_SIZE = 60;
+
+    private NodeStore store;
+    private int handle;
+    private int slot;
 
     public ResourceNode(ResourceType type, float x, float y) {
-        this.type = type;
-        this.x = x;
-        this.y = y;
-        this.size = 40 + MathUtils.random(20); // Taille variable
+        this(type, x, y, MathUtils.random);
+    }
 
-        // Le pétrole est infini
-        if (type == ResourceType.OIL) {
-            this.maxAmount = Integer.MAX_VALUE;
-            this.amount = Integer.MAX_VALUE;
-        } else {
-            this.maxAmount = MathUtils.random(type.minAmount, type.maxAmount);
-            this.amount = maxAmount;
-        }
+    /**
+     * Node neuf dont la taille et la quantité sont tirées de random
+     * (toujours deux tirages nextFloat, même pour le pétrole)
+     */
+    public ResourceNode(ResourceType type, float x, float y, Random random) {
+        NodeStore own = new NodeStore(1);
+        bind(own, own.addRandom(type, x, y, random));
+    }
+
+    /**
+     * Recrée un node dans un état connu (chargement depuis le disque)
+     */
+    public ResourceNode(ResourceType type, float x, float y, float size, int amount, int maxAmount) {
+        NodeStore own = new NodeStore(1);
+        bind(own, own.add(type, x, y, size, amount, maxAmount));
+    }
 
-        this.depleted = false;
-        this.miningProgress = 0;
-        this.beingMined = false;
+    /**
+     * Vue sur un node existant (voir NodeStore.view)
+     */
+    ResourceNode(NodeStore store, int handle) {
+        this.store = store;
+        this.handle = handle;
+        this.slot = NodeStore.slotOf(handle);
+    }
+
+    /**
+     * Fait pointer la vue sur un autre node (qui reprend cette instance comme vue)
+     */
+    void bind(NodeStore store, int handle) {
+        this.store = store;
+        this.handle = handle;
+        this.slot = NodeStore.slotOf(handle);
+        store.bindView(handle, this);
+    }
+
+    /**
+     * Appelé par le store à la suppression du node. Rien n'est recopié : le déchargement
+     * d'un chunk supprime ses nodes en masse et ne doit pas allouer pour leurs vues.
+     */
+    void invalidate() {
+        this.store = null;
+        this.handle = NodeStore.NO_NODE;
+        this.slot = 0;
+    }
+
+    /**
+     * Vrai si le node a été supprimé de son store (la vue n'est plus lisible)
+     */
+    public boolean isRemoved() {
+        return store == null;
     }
 
     /**
@@ -61,20 +104,15 @@ public class ResourceNode {
      * @return true si on a extrait une ressource
      */
     public boolean mine(float delta, float miningSpeed) {
-        if (depleted) return false;
+        if (isDepleted()) return false;
 
-        beingMined = true;
-        miningProgress += delta * miningSpeed;
+        setFlag(NodeStore.BEING_MINED, true);
+        store.miningProgress[slot] += delta * miningSpeed;
 
         // Il faut 1 seconde pour extraire une unité (ajustable)
-        if (miningProgress >= 1.0f) {
-            miningProgress = 0;
-            amount--;
-
-            if (amount <= 0 && type != ResourceType.OIL) {
-                depleted = true;
-            }
-
+        if (store.miningProgress[slot] >= 1.0f) {
+            store.miningProgress[slot] = 0;
+            store.setAmount(handle, store.amount[slot] - 1); // s'épuise à 0 (sauf le pétrole)
             return true;
         }
 
@@ -85,16 +123,17 @@ public class ResourceNode {
      * Arrête le minage (réinitialise la progression)
      */
     public void stopMining() {
-        beingMined = false;
-        miningProgress = 0;
+        setFlag(NodeStore.BEING_MINED, false);
+        store.miningProgress[slot] = 0;
     }
 
     /**
      * Vérifie si le joueur est assez proche pour miner
      */
     public boolean isInRange(float playerX, float playerY, float range) {
-        float dx = (x + size / 2) - (playerX + 25); // 25 = moitié du joueur
-        float dy = (y + size / 2) - (playerY + 25);
+        float size = getSize();
+        float dx = (getX() + size / 2) - (playerX + 25); // 25 = moitié du joueur
+        float dy = (getY() + size / 2) - (playerY + 25);
         float distance = (float) Math.sqrt(dx * dx + dy * dy);
         return distance <= range;
     }
@@ -103,54 +142,63 @@ public class ResourceNode {
      * Retourne la couleur en fonction de la quantité restante
      */
     public Color getDisplayColor() {
-        if (depleted) {
-            return new Color(0.3f, 0.3f, 0.3f, 0.5f);
-        }
+        return getDisplayColor(new Color());
+    }
 
-        if (type == ResourceType.OIL) {
-            return type.color;
-        }
+    /**
+     * Écrit dans out la couleur en fonction de la quantité restante (sans allocation)
+     * @return out
+     */
+    public Color getDisplayColor(Color out) {
+        Color.rgba8888ToColor(out, store.getDisplayColor(handle));
+        return out;
+    }
 
-        // Assombrir la couleur quand il y a moins de ressources
-        float ratio = (float) amount / maxAmount;
-        return new Color(
-            type.color.r * (0.5f + ratio * 0.5f),
-            type.color.g * (0.5f + ratio * 0.5f),
-            type.color.b * (0.5f + ratio * 0.5f),
-            1
-        );
+    /**
+     * Couleur affichée empaquetée (RGBA8888), gardée en cache par le store
+     */
+    public int getPackedDisplayColor() {
+        return store.getDisplayColor(handle);
     }
 
     /**
      * Retourne la taille affichée (plus petit quand épuisé)
      */
     public float getDisplaySize() {
-        if (depleted) return size * 0.5f;
-
-        if (type == ResourceType.OIL) return size;
+        return store.getDisplaySize(handle);
+    }
 
-        float ratio = (float) amount / maxAmount;
-        return size * (0.5f + ratio * 0.5f);
+    private void setFlag(byte flag, boolean value) {
+        if (value) store.flags[slot] |= flag;
+        else store.flags[slot] &= ~flag;
     }
 
     // Getters
-    public ResourceType getType() { return type; }
-    public float getX() { return x; }
-    public float getY() { return y; }
-    public float getSize() { return size; }
-    public int getAmount() { return amount; }
-    public int getMaxAmount() { return maxAmount; }
-    public boolean isDepleted() { return depleted; }
-    public float getMiningProgress() { return miningProgress; }
-    public boolean isBeingMined() { return beingMined; }
+    public ResourceType getType() { return store.getType(handle); }
+    public float getX() { return store.x[slot]; }
+    public float getY() { return store.y[slot]; }
+    public float getSize() { return store.size[slot]; }
+    public int getAmount() { return store.amount[slot]; }
+    public int getMaxAmount() { return store.maxAmount[slot]; }
+    public boolean isDepleted() { return (store.flags[slot] & NodeStore.DEPLETED) != 0; }
+    public float getMiningProgress() { return store.miningProgress[slot]; }
+    public boolean isBeingMined() { return (store.flags[slot] & NodeStore.BEING_MINED) != 0; }
+
+    /**
+     * Store et handle du node (valables jusqu'à sa suppression ou sa recopie dans un autre store ;
+     * null et NodeStore.NO_NODE une fois supprimé)
+     */
+    public NodeStore getStore() { return store; }
+    public int getHandle() { return handle; }
 
     /**
      * Retourne un texte d'info pour l'UI
      */
     public String getInfoText() {
+        ResourceType type = getType();
         if (type == ResourceType.OIL) {
             return type.displayName + " (Infini)";
         }
-        return type.displayName + ": " + amount + "/" + maxAmount;
+        return type.displayName + ": " + getAmount() + "/" + getMaxAmount();
     }
 }
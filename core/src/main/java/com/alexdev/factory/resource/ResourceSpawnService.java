@@ -0,0 +1,213 @@
+package com.alexdev.factory.resource;
+
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.util.LongHashSet;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Génère les nodes de ressources des chunks en arrière-plan.
+ * Les workers tirent les nodes d'origine d'un chunk (ResourceManager.generateChunkNodes)
+ * dans un NodeStore à eux ; le thread de rendu les recopie ensuite dans le ResourceManager
+ * (mergeCompleted) avec un budget de nodes par frame, et n'attend jamais les workers.
+ * Un chunk fusionné en plusieurs frames est déjà marqué en mémoire dès son premier node.
+ *
+ * Toutes les méthodes publiques doivent être appelées depuis le thread de rendu.
+ */
+public class ResourceSpawnService {
+
+    /**
+     * Nodes d'un chunk tirés par un worker, en attente de fusion
+     */
+    private static final class GeneratedChunk {
+        final int cx, cy;
+        final NodeStore nodes; // null si la génération a été abandonnée
+        final int[] handles;
+        final int count;
+
+        GeneratedChunk(int cx, int cy, NodeStore nodes, int[] handles, int count) {
+            this.cx = cx;
+            this.cy = cy;
+            this.nodes = nodes;
+            this.handles = handles;
+            this.count = count;
+        }
+    }
+
+    private final ResourceManager resources;
+    private final ExecutorService executor;
+
+    // Chunks demandés et pas encore fusionnés (thread de rendu uniquement)
+    private final LongHashSet pending = new LongHashSet();
+    // File de fusion workers -> thread de rendu
+    private final ConcurrentLinkedQueue<GeneratedChunk> completed = new ConcurrentLinkedQueue<>();
+
+    // Chunk en cours de fusion (budget épuisé au milieu) et prochain node à fusionner
+    private GeneratedChunk merging;
+    private int mergeIndex;
+
+    // Dernier centre d'intérêt connu (en chunks), lu par les workers pour abandonner les chunks devenus lointains
+    private volatile int focusChunkX;
+    private volatile int focusChunkY;
+    private volatile int dropDistance = Integer.MAX_VALUE;
+
+    // Statistiques
+    private long mergedChunks;
+    private long mergedNodes;
+    private long dropped;
+
+    public ResourceSpawnService(ResourceManager resources, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        this.resources = resources;
+        this.executor = Executors.newFixedThreadPool(threads, new WorkerFactory());
+    }
+
+    /**
+     * Crée un service avec un seul worker (la génération des nodes est légère)
+     */
+    public ResourceSpawnService(ResourceManager resources) {
+        this(resources, 1);
+    }
+
+    /**
+     * Demande la génération des chunks qui touchent une zone (en tuiles), du centre vers l'extérieur.
+     * Les chunks à plus de dropRadius tuiles du centre sont abandonnés s'ils ne sont pas encore fusionnés.
+     */
+    public void requestArea(int centerX, int centerY, int radius, int dropRadius) {
+        int centerCx = centerX >> ChunkCache.CHUNK_SHIFT;
+        int centerCy = centerY >> ChunkCache.CHUNK_SHIFT;
+        focusChunkX = centerCx;
+        focusChunkY = centerCy;
+        dropDistance = (dropRadius + ChunkCache.CHUNK_MASK) >> ChunkCache.CHUNK_SHIFT;
+
+        int minCx = (centerX - radius) >> ChunkCache.CHUNK_SHIFT;
+        int maxCx = (centerX + radius) >> ChunkCache.CHUNK_SHIFT;
+        int minCy = (centerY - radius) >> ChunkCache.CHUNK_SHIFT;
+        int maxCy = (centerY + radius) >> ChunkCache.CHUNK_SHIFT;
+        int rings = Math.max(Math.max(centerCx - minCx, maxCx - centerCx), Math.max(centerCy - minCy, maxCy - centerCy));
+
+        for (int r = 0; r <= rings; r++) {
+            for (int cx = Math.max(minCx, centerCx - r); cx <= Math.min(maxCx, centerCx + r); cx++) {
+                for (int cy = Math.max(minCy, centerCy - r); cy <= Math.min(maxCy, centerCy + r); cy++) {
+                    if (Math.abs(cx - centerCx) == r || Math.abs(cy - centerCy) == r) {
+                        request(cx, cy);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Demande la génération du chunk (cx, cy) s'il n'est ni en mémoire ni déjà demandé
+     * @return true si une nouvelle tâche a été soumise
+     */
+    public boolean request(final int cx, final int cy) {
+        long key = ChunkCache.chunkKey(cx, cy);
+        if (pending.contains(key) || resources.isChunkGenerated(cx, cy)) return false;
+
+        pending.add(key);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (isTooFar(cx, cy)) {
+                    completed.add(new GeneratedChunk(cx, cy, null, null, 0));
+                    return;
+                }
+
+                NodeStore nodes = new NodeStore(ResourceManager.SPAWN_POINTS_PER_CHUNK);
+                int[] handles = new int[ResourceManager.SPAWN_POINTS_PER_CHUNK];
+                int count = resources.generateChunkNodes(cx, cy, nodes, handles);
+                completed.add(new GeneratedChunk(cx, cy, nodes, handles, count));
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Fusionne dans le ResourceManager les nodes tirés par les workers
+     * @param maxNodes nombre maximal de nodes fusionnés par appel (budget par frame)
+     * @return nombre de nodes fusionnés
+     */
+    public int mergeCompleted(int maxNodes) {
+        int merged = 0;
+        while (merged < maxNodes) {
+            if (merging == null) {
+                GeneratedChunk chunk = completed.poll();
+                if (chunk == null) break;
+
+                // Abandonné, devenu lointain, ou déjà généré de façon synchrone entre-temps
+                if (chunk.nodes == null || isTooFar(chunk.cx, chunk.cy) || !resources.claimChunk(chunk.cx, chunk.cy)) {
+                    pending.remove(ChunkCache.chunkKey(chunk.cx, chunk.cy));
+                    dropped++;
+                    continue;
+                }
+                merging = chunk;
+                mergeIndex = 0;
+            }
+
+            // Chunk déchargé entre deux frames : le reste de ses nodes est abandonné
+            if (mergeIndex > 0 && !resources.isChunkGenerated(merging.cx, merging.cy)) {
+                finishChunk();
+                continue;
+            }
+
+            while (mergeIndex < merging.count && merged < maxNodes) {
+                resources.addGeneratedNode(merging.cx, merging.cy, merging.nodes, merging.handles[mergeIndex++]);
+                merged++;
+            }
+            if (mergeIndex == merging.count) {
+                finishChunk();
+                mergedChunks++;
+            }
+        }
+        mergedNodes += merged;
+        return merged;
+    }
+
+    private void finishChunk() {
+        pending.remove(ChunkCache.chunkKey(merging.cx, merging.cy));
+        merging = null;
+    }
+
+    private boolean isTooFar(int cx, int cy) {
+        return Math.abs(cx - focusChunkX) > dropDistance || Math.abs(cy - focusChunkY) > dropDistance;
+    }
+
+    public void dispose() {
+        executor.shutdownNow();
+        completed.clear();
+        pending.clear();
+        merging = null;
+    }
+
+    // Getters
+    public int getPendingCount() { return pending.size(); }
+    public long getMergedChunkCount() { return mergedChunks; }
+    public long getMergedNodeCount() { return mergedNodes; }
+    public long getDroppedCount() { return dropped; }
+
+    @Override
+    public String toString() {
+        return "ResourceSpawnService{pending=" + pending.size() + ", mergedChunks=" + mergedChunks +
+            ", mergedNodes=" + mergedNodes + ", dropped=" + dropped + "}";
+    }
+
+    /**
+     * Threads démons nommés, pour ne pas empêcher la fermeture du jeu
+     */
+    private static final class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "resource-gen-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
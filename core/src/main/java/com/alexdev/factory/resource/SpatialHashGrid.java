@@ -0,0 +1,98 @@
+package com.alexdev.factory.resource;
+
+import com.badlogic.gdx.utils.LongMap;
+
+import java.util.Arrays;
+
+/**
+ * Index spatial des nodes : grille uniforme de cellules carrées, dont seules les cellules
+ * non vides existent, rangées par coordonnées de cellule empaquetées dans un long.
+ * Les cellules contiennent les handles des nodes du NodeStore (pas d'objets par node).
+ * Un node est rangé dans la cellule de son coin (x, y) ; les recherches
+ * élargissent donc leur zone de ResourceNode.MAX_SIZE pour trouver les nodes qui débordent.
+ * Le coût d'une recherche dépend de la surface demandée, pas du nombre total de nodes.
+ */
+public class SpatialHashGrid {
+
+    /**
+     * Handles des nodes d'une cellule, dans un ordre quelconque
+     */
+    public static final class Cell {
+        private int[] handles = new int[4];
+        private int size;
+
+        public int size() { return size; }
+        public int get(int index) { return handles[index]; }
+    }
+
+    private final NodeStore store;
+    private final float cellSize;
+    private final float inverseCellSize;
+    private final LongMap<Cell> cells = new LongMap<>();
+    private int size;
+
+    /**
+     * @param cellSize côté d'une cellule, en pixels monde
+     */
+    public SpatialHashGrid(NodeStore store, float cellSize) {
+        if (cellSize <= 0) throw new IllegalArgumentException("cellSize must be > 0");
+        this.store = store;
+        this.cellSize = cellSize;
+        this.inverseCellSize = 1f / cellSize;
+    }
+
+    public void add(int handle) {
+        long key = cellKey(cellOf(store.getX(handle)), cellOf(store.getY(handle)));
+        Cell cell = cells.get(key);
+        if (cell == null) {
+            cell = new Cell();
+            cells.put(key, cell);
+        }
+        if (cell.size == cell.handles.length) cell.handles = Arrays.copyOf(cell.handles, cell.size * 2);
+        cell.handles[cell.size++] = handle;
+        size++;
+    }
+
+    /**
+     * @return false si le node n'était pas dans la grille
+     */
+    public boolean remove(int handle) {
+        long key = cellKey(cellOf(store.getX(handle)), cellOf(store.getY(handle)));
+        Cell cell = cells.get(key);
+        if (cell == null) return false;
+
+        for (int i = 0; i < cell.size; i++) {
+            if (cell.handles[i] != handle) continue;
+
+            cell.handles[i] = cell.handles[--cell.size];
+            if (cell.size == 0) cells.remove(key);
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Nodes de la cellule (cx, cy), ou null si elle est vide
+     */
+    public Cell getCell(int cx, int cy) {
+        return cells.get(cellKey(cx, cy));
+    }
+
+    public int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate * inverseCellSize);
+    }
+
+    public static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    public void clear() {
+        cells.clear();
+        size = 0;
+    }
+
+    public float getCellSize() { return cellSize; }
+    public int getCellCount() { return cells.size; }
+    public int size() { return size; }
+}
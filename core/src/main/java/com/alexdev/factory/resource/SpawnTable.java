@@ -0,0 +1,268 @@
+package com.alexdev.factory.resource;
+
+import com.alexdev.factory.map.DevMap;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+
+import java.util.Locale;
+
+/**
+ * Règles de génération des ressources : probabilité de chaque ressource par biome
+ * et quantités des nodes, compilées en tables de la méthode des alias (Vose) par type de tuile.
+ * Un tirage (sample) coûte deux comparaisons et deux lectures de tableau, quel que soit
+ * le nombre de ressources du biome, sans chaîne ni map.
+ *
+ * Immuable : partageable entre threads (workers de ResourceSpawnService).
+ * Le fichier JSON (voir load) est de la forme :
+ * <pre>
+ * {
+ *   "resources": { "iron": { "minAmount": 50, "maxAmount": 100 }, ... },
+ *   "biomes": { "stone": { "iron": 0.08, "copper": 0.06 }, ... }
+ * }
+ * </pre>
+ * Ressources et biomes sont désignés par le nom des constantes de ResourceType et de DevMap
+ * (sans tenir compte de la casse) ; un biome absent ne fait apparaître aucune ressource.
+ */
+public final class SpawnTable {
+
+    public static final int NONE = -1; // aucune ressource au point de génération
+
+    // Fichier des règles, relatif au dossier assets/
+    public static final String ASSET_PATH = "resources/spawn_tables.json";
+
+    private static final ResourceNode.ResourceType[] TYPES = ResourceNode.ResourceType.values();
+
+    // Règles d'origine du jeu (celles de assets/resources/spawn_tables.json)
+    public static final SpawnTable DEFAULT = new SpawnTable(defaultChances(), defaultAmounts(true), defaultAmounts(false));
+
+    // Par type de tuile : probabilité qu'un point porte une ressource, nombre de colonnes / total,
+    // première colonne et nombre de colonnes de sa table
+    private final float[] totals = new float[DevMap.TILE_TYPE_COUNT];
+    private final float[] scales = new float[DevMap.TILE_TYPE_COUNT];
+    private final int[] offsets = new int[DevMap.TILE_TYPE_COUNT];
+    private final int[] counts = new int[DevMap.TILE_TYPE_COUNT];
+
+    // Colonnes des tables d'alias de tous les biomes, à la suite (offsets[tileType] = première colonne)
+    private final float[] thresholds;
+    private final byte[] outcomes;
+    private final byte[] aliases;
+
+    // Quantités des nodes, par ordinal de ResourceType
+    private final int[] minAmounts;
+    private final int[] maxAmounts;
+
+    /**
+     * @param chances chances[tileType][ordinal] = probabilité qu'un point de génération de ce biome
+     *                porte cette ressource (somme au plus 1 par biome)
+     * @param minAmounts quantité minimale d'un node, par ordinal de ResourceType
+     * @param maxAmounts quantité maximale d'un node, par ordinal de ResourceType
+     */
+    public SpawnTable(float[][] chances, int[] minAmounts, int[] maxAmounts) {
+        if (chances.length != DevMap.TILE_TYPE_COUNT) {
+            throw new IllegalArgumentException("spawn table needs " + DevMap.TILE_TYPE_COUNT + " biomes, got " + chances.length);
+        }
+        if (minAmounts.length != TYPES.length || maxAmounts.length != TYPES.length) {
+            throw new IllegalArgumentException("spawn table needs amounts for " + TYPES.length + " resources");
+        }
+        for (int i = 0; i < TYPES.length; i++) {
+            if (minAmounts[i] < 0 || maxAmounts[i] < minAmounts[i]) {
+                throw new IllegalArgumentException("invalid amounts for " + TYPES[i] + ": " + minAmounts[i] + ".." + maxAmounts[i]);
+            }
+        }
+        this.minAmounts = minAmounts.clone();
+        this.maxAmounts = maxAmounts.clone();
+
+        int columns = 0;
+        for (int tileType = 0; tileType < chances.length; tileType++) {
+            offsets[tileType] = columns;
+            counts[tileType] = countOutcomes(tileType, chances[tileType]);
+            columns += counts[tileType];
+        }
+        thresholds = new float[columns];
+        outcomes = new byte[columns];
+        aliases = new byte[columns];
+
+        for (int tileType = 0; tileType < chances.length; tileType++) {
+            compile(tileType, chances[tileType]);
+        }
+    }
+
+    private int countOutcomes(int tileType, float[] biome) {
+        if (biome.length != TYPES.length) {
+            throw new IllegalArgumentException("biome " + DevMap.tileName(tileType) + " needs " + TYPES.length + " chances, got " + biome.length);
+        }
+
+        int count = 0;
+        float total = 0;
+        for (int i = 0; i < biome.length; i++) {
+            if (biome[i] < 0) throw new IllegalArgumentException("negative chance for " + TYPES[i] + " in biome " + DevMap.tileName(tileType));
+            if (biome[i] > 0) count++;
+            total += biome[i];
+        }
+        if (total > 1.0001f) {
+            throw new IllegalArgumentException("chances of biome " + DevMap.tileName(tileType) + " sum to " + total + " (> 1)");
+        }
+        return count;
+    }
+
+    /**
+     * Table d'alias du biome : colonne i = ressource outcomes[i] si la fraction du tirage est
+     * sous thresholds[i], sinon aliases[i]. Chaque colonne a la même probabilité.
+     */
+    private void compile(int tileType, float[] biome) {
+        int base = offsets[tileType];
+        int n = 0;
+        float total = 0;
+        for (int i = 0; i < biome.length; i++) {
+            if (biome[i] <= 0) continue;
+            outcomes[base + n++] = (byte) i;
+            total += biome[i];
+        }
+        if (n == 0) return;
+
+        totals[tileType] = Math.min(1, total);
+        scales[tileType] = n / total;
+
+        // Probabilités ramenées à une moyenne de 1 par colonne, puis appariement petits / grands
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = biome[outcomes[base + i]] * n / (double) total;
+            if (scaled[i] < 1) small[smallCount++] = i;
+            else large[largeCount++] = i;
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            thresholds[base + less] = (float) scaled[less];
+            aliases[base + less] = outcomes[base + more];
+
+            scaled[more] -= 1 - scaled[less];
+            if (scaled[more] < 1) small[smallCount++] = more;
+            else large[largeCount++] = more;
+        }
+        // Restes (arrondis) : colonnes pleines
+        while (largeCount > 0) fillColumn(base + large[--largeCount]);
+        while (smallCount > 0) fillColumn(base + small[--smallCount]);
+    }
+
+    private void fillColumn(int column) {
+        thresholds[column] = 1;
+        aliases[column] = outcomes[column];
+    }
+
+    /**
+     * Ressource qui apparaît à un point de génération
+     * @param chance tirage uniforme du point, entre 0 et 1
+     * @return ordinal de ResourceType, ou NONE
+     */
+    public int sample(int tileType, float chance) {
+        if (tileType < 0 || tileType >= totals.length || chance >= totals[tileType]) return NONE;
+
+        // Le même tirage choisit la colonne (partie entière) et la tranche de la colonne (partie fractionnaire)
+        float position = chance * scales[tileType];
+        int column = Math.min((int) position, counts[tileType] - 1);
+
+        int index = offsets[tileType] + column;
+        return position - column < thresholds[index] ? outcomes[index] : aliases[index];
+    }
+
+    /**
+     * Probabilité qu'un point de génération du biome porte une ressource
+     */
+    public float getSpawnChance(int tileType) {
+        return tileType >= 0 && tileType < totals.length ? totals[tileType] : 0;
+    }
+
+    public int getMinAmount(int ordinal) { return minAmounts[ordinal]; }
+    public int getMaxAmount(int ordinal) { return maxAmounts[ordinal]; }
+
+    /**
+     * Charge et compile les règles d'un fichier JSON. Les quantités des ressources absentes
+     * du fichier sont celles de ResourceType.
+     */
+    public static SpawnTable load(FileHandle file) {
+        return fromJson(new JsonReader().parse(file));
+    }
+
+    /**
+     * Charge les règles du fichier s'il existe, sinon DEFAULT (outils headless lancés hors de assets/)
+     */
+    public static SpawnTable loadOrDefault(FileHandle file) {
+        return file.exists() ? load(file) : DEFAULT;
+    }
+
+    public static SpawnTable fromJson(JsonValue root) {
+        int[] minAmounts = defaultAmounts(true);
+        int[] maxAmounts = defaultAmounts(false);
+        JsonValue resources = root.get("resources");
+        if (resources != null) {
+            for (JsonValue entry = resources.child; entry != null; entry = entry.next) {
+                int ordinal = resourceOrdinal(entry.name);
+                minAmounts[ordinal] = entry.getInt("minAmount", minAmounts[ordinal]);
+                maxAmounts[ordinal] = entry.getInt("maxAmount", maxAmounts[ordinal]);
+            }
+        }
+
+        float[][] chances = new float[DevMap.TILE_TYPE_COUNT][TYPES.length];
+        JsonValue biomes = root.get("biomes");
+        if (biomes != null) {
+            for (JsonValue biome = biomes.child; biome != null; biome = biome.next) {
+                int tileType = DevMap.tileTypeOf(biome.name);
+                if (tileType < 0) throw new IllegalArgumentException("unknown biome '" + biome.name + "'");
+
+                for (JsonValue entry = biome.child; entry != null; entry = entry.next) {
+                    chances[tileType][resourceOrdinal(entry.name)] = entry.asFloat();
+                }
+            }
+        }
+        return new SpawnTable(chances, minAmounts, maxAmounts);
+    }
+
+    private static int resourceOrdinal(String name) {
+        try {
+            return ResourceNode.ResourceType.valueOf(name.toUpperCase(Locale.ROOT)).ordinal();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown resource '" + name + "'");
+        }
+    }
+
+    private static float[][] defaultChances() {
+        float[][] chances = new float[DevMap.TILE_TYPE_COUNT][TYPES.length];
+        set(chances, DevMap.STONE, ResourceNode.ResourceType.IRON, 0.08f);
+        set(chances, DevMap.STONE, ResourceNode.ResourceType.COPPER, 0.06f);
+        set(chances, DevMap.STONE, ResourceNode.ResourceType.STONE, 0.06f);
+        set(chances, DevMap.FOREST, ResourceNode.ResourceType.COAL, 0.06f);
+        set(chances, DevMap.FOREST, ResourceNode.ResourceType.COPPER, 0.04f);
+        set(chances, DevMap.GRASS, ResourceNode.ResourceType.IRON, 0.03f);
+        set(chances, DevMap.GRASS, ResourceNode.ResourceType.COAL, 0.02f);
+        set(chances, DevMap.SAND, ResourceNode.ResourceType.OIL, 0.10f);
+        return chances;
+    }
+
+    private static void set(float[][] chances, int tileType, ResourceNode.ResourceType type, float chance) {
+        chances[tileType][type.ordinal()] = chance;
+    }
+
+    private static int[] defaultAmounts(boolean min) {
+        int[] amounts = new int[TYPES.length];
+        for (ResourceNode.ResourceType type : TYPES) {
+            amounts[type.ordinal()] = min ? type.minAmount : type.maxAmount;
+        }
+        return amounts;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("SpawnTable{");
+        for (int tileType = 0; tileType < totals.length; tileType++) {
+            if (tileType > 0) builder.append(", ");
+            builder.append(DevMap.tileName(tileType)).append('=').append(totals[tileType]);
+        }
+        return builder.append('}').toString();
+    }
+}
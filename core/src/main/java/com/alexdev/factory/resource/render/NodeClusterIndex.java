@@ -0,0 +1,129 @@
+package com.alexdev.factory.resource.render;
+
+import com.alexdev.factory.resource.NodeStore;
+import com.alexdev.factory.resource.ResourceManager;
+import com.alexdev.factory.resource.ResourceNode;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Agrégats des nodes non épuisés par cellule de grille, pour l'affichage dézoomé :
+ * nombre de nodes, type dominant, quantité restante totale et barycentre.
+ * Tenu à jour au fil des ajouts, retraits et changements de quantité (NodeListener),
+ * sans jamais reparcourir les nodes.
+ */
+public class NodeClusterIndex implements ResourceManager.NodeListener {
+
+    // Côté d'une cellule, en pixels monde (16 tuiles)
+    public static final float CELL_SIZE = 512;
+
+    private static final ResourceNode.ResourceType[] TYPES = ResourceNode.ResourceType.values();
+
+    /**
+     * Agrégat des nodes d'une cellule
+     */
+    public static final class Cluster {
+        private final int[] typeCounts = new int[TYPES.length];
+        private int count;
+        private long totalAmount;
+        private double sumX, sumY;
+        private ResourceNode.ResourceType dominant;
+
+        private void add(NodeStore store, int handle, int amount, int sign) {
+            int ordinal = store.getTypeOrdinal(handle);
+            float half = store.getSize(handle) / 2;
+            typeCounts[ordinal] += sign;
+            count += sign;
+            totalAmount += sign * (long) finiteAmount(store, handle, amount);
+            sumX += sign * (store.getX(handle) + half);
+            sumY += sign * (store.getY(handle) + half);
+
+            // Peu de types : recalcul direct du dominant
+            int best = 0;
+            for (int i = 1; i < typeCounts.length; i++) {
+                if (typeCounts[i] > typeCounts[best]) best = i;
+            }
+            dominant = TYPES[best];
+        }
+
+        public int getCount() { return count; }
+        public int getTypeCount(ResourceNode.ResourceType type) { return typeCounts[type.ordinal()]; }
+        public ResourceNode.ResourceType getDominantType() { return dominant; }
+        /** Quantité restante totale (hors pétrole, infini) */
+        public long getTotalAmount() { return totalAmount; }
+        public float getCenterX() { return (float) (sumX / count); }
+        public float getCenterY() { return (float) (sumY / count); }
+    }
+
+    private final LongMap<Cluster> cells = new LongMap<>();
+    private int nodeCount;
+
+    /**
+     * Crée l'index à partir des nodes déjà présents et s'abonne aux changements
+     */
+    public NodeClusterIndex(ResourceManager resources) {
+        NodeStore store = resources.getStore();
+        for (int slot = 0; slot < store.getSlotCount(); slot++) {
+            int handle = store.handleAt(slot);
+            if (handle != NodeStore.NO_NODE) nodeAdded(store, handle);
+        }
+        resources.addNodeListener(this);
+    }
+
+    @Override
+    public void nodeAdded(NodeStore store, int handle) {
+        if (!store.isDepleted(handle)) update(store, handle, store.getAmount(handle), 1);
+    }
+
+    @Override
+    public void nodeRemoved(NodeStore store, int handle) {
+        if (!store.isDepleted(handle)) update(store, handle, store.getAmount(handle), -1);
+    }
+
+    @Override
+    public void nodeChanged(NodeStore store, int handle, int oldAmount) {
+        boolean wasActive = oldAmount > 0 || store.getType(handle) == ResourceNode.ResourceType.OIL;
+        if (wasActive) update(store, handle, oldAmount, -1);
+        if (!store.isDepleted(handle)) update(store, handle, store.getAmount(handle), 1);
+    }
+
+    private void update(NodeStore store, int handle, int amount, int sign) {
+        long key = cellKey(cellOf(store.getX(handle)), cellOf(store.getY(handle)));
+        Cluster cluster = cells.get(key);
+        if (cluster == null) {
+            if (sign < 0) return;
+            cluster = new Cluster();
+            cells.put(key, cluster);
+        }
+
+        cluster.add(store, handle, amount, sign);
+        nodeCount += sign;
+        if (cluster.count == 0) cells.remove(key);
+    }
+
+    private static int finiteAmount(NodeStore store, int handle, int amount) {
+        return store.getType(handle) == ResourceNode.ResourceType.OIL ? 0 : amount;
+    }
+
+    /**
+     * Agrégat de la cellule (cellX, cellY), ou null si elle n'a aucun node non épuisé
+     */
+    public Cluster getCluster(int cellX, int cellY) {
+        return cells.get(cellKey(cellX, cellY));
+    }
+
+    public static int cellOf(float coordinate) {
+        return (int) Math.floor(coordinate / CELL_SIZE);
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    public int getClusterCount() { return cells.size; }
+    public int getNodeCount() { return nodeCount; }
+
+    @Override
+    public String toString() {
+        return "NodeClusterIndex{clusters=" + cells.size + ", nodes=" + nodeCount + "}";
+    }
+}
@@ -0,0 +1,203 @@
+package com.alexdev.factory.resource.render;
+
+import com.alexdev.factory.resource.NodeStore;
+import com.alexdev.factory.resource.ResourceManager;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Dessine les nodes de ressources visibles par la caméra en trois passes groupées :
+ * tous les disques, puis toutes les bordures, puis les barres de minage.
+ * Le ShapeRenderer ne change donc de mode que deux ou trois fois par frame,
+ * quel que soit le nombre de nodes (au lieu de deux fois par node).
+ * Couleurs et tailles viennent du cache du NodeStore (recalculées seulement quand
+ * la quantité d'un node change) ; aucune allocation par frame.
+ *
+ * À partir de CLUSTER_ZOOM, les nodes ne font plus que quelques pixels à l'écran :
+ * chaque cellule du NodeClusterIndex est dessinée comme un seul marqueur
+ * (couleur du type dominant, taille selon le nombre de nodes), en une passe.
+ */
+public class ResourceNodeRenderer {
+
+    private static final int SEGMENTS = 16;
+
+    // Zoom à partir duquel les nodes sont regroupés en marqueurs
+    public static final float CLUSTER_ZOOM = 3f;
+    private static final int CLUSTER_SEGMENTS = 12;
+
+    private final ResourceManager resources;
+    private final NodeClusterIndex clusters;
+    private final IntArray visible = new IntArray(256);
+
+    // Statistiques de la dernière frame
+    private int lastNodeCount;
+    private int lastClusterCount;
+    private int lastPassCount;
+    private int lastFlushCount;
+    private long totalFlushCount;
+
+    // Sommets en attente dans le tampon du ShapeRenderer après la dernière forme de la passe en cours
+    private int pendingVertices;
+
+    public ResourceNodeRenderer(ResourceManager resources) {
+        this.resources = resources;
+        this.clusters = new NodeClusterIndex(resources);
+    }
+
+    /**
+     * Dessine les nodes visibles. Le ShapeRenderer ne doit pas être en cours d'utilisation
+     * et doit déjà avoir la matrice de projection de la caméra.
+     */
+    public void render(ShapeRenderer shapeRenderer, OrthographicCamera camera) {
+        float halfWidth = camera.viewportWidth * camera.zoom / 2;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2;
+        if (camera.zoom >= CLUSTER_ZOOM) {
+            renderClusters(shapeRenderer, camera, halfWidth, halfHeight);
+            return;
+        }
+
+        lastClusterCount = 0;
+        int count = resources.getHandlesInArea(
+            camera.position.x - halfWidth, camera.position.y - halfHeight,
+            camera.position.x + halfWidth, camera.position.y + halfHeight,
+            visible
+        );
+
+        lastNodeCount = count;
+        lastPassCount = 0;
+        lastFlushCount = 0;
+        if (count == 0) return;
+
+        NodeStore store = resources.getStore();
+        int[] handles = visible.items;
+
+        // Passe 1 : disques
+        beginPass(shapeRenderer, ShapeRenderer.ShapeType.Filled);
+        for (int i = 0; i < count; i++) {
+            int handle = handles[i];
+            int color = store.getDisplayColor(handle);
+            shapeRenderer.setColor(red(color), green(color), blue(color), alpha(color));
+            circle(shapeRenderer, store, handle);
+            countFlushes(shapeRenderer);
+        }
+        endPass(shapeRenderer);
+
+        // Passe 2 : bordures plus foncées
+        beginPass(shapeRenderer, ShapeRenderer.ShapeType.Line);
+        for (int i = 0; i < count; i++) {
+            int handle = handles[i];
+            int color = store.getDisplayColor(handle);
+            shapeRenderer.setColor(red(color) * 0.5f, green(color) * 0.5f, blue(color) * 0.5f, 1);
+            circle(shapeRenderer, store, handle);
+            countFlushes(shapeRenderer);
+        }
+        endPass(shapeRenderer);
+
+        // Passe 3 : barres de progression des nodes en cours de minage
+        int mined = 0;
+        for (int i = 0; i < count; i++) {
+            int handle = handles[i];
+            if (!store.isBeingMined(handle)) continue;
+
+            if (mined++ == 0) beginPass(shapeRenderer, ShapeRenderer.ShapeType.Filled);
+            float size = store.getDisplaySize(handle);
+            float x = store.getX(handle) + (store.getSize(handle) - size) / 2;
+            float y = store.getY(handle) + (store.getSize(handle) - size) / 2;
+            shapeRenderer.setColor(0, 0, 0, 0.7f);
+            shapeRenderer.rect(x, y + size + 5, size, 6);
+            shapeRenderer.setColor(0, 1, 0, 1);
+            shapeRenderer.rect(x + 1, y + size + 6, (size - 2) * store.getMiningProgress(handle), 4);
+            countFlushes(shapeRenderer);
+        }
+        if (mined > 0) endPass(shapeRenderer);
+    }
+
+    /**
+     * Un marqueur par cellule visible : taille à l'écran à peu près constante quel que soit le zoom
+     */
+    private void renderClusters(ShapeRenderer shapeRenderer, OrthographicCamera camera, float halfWidth, float halfHeight) {
+        // Les marqueurs débordent de leur cellule d'au plus un demi-côté
+        float margin = NodeClusterIndex.CELL_SIZE / 2;
+        int minCellX = NodeClusterIndex.cellOf(camera.position.x - halfWidth - margin);
+        int maxCellX = NodeClusterIndex.cellOf(camera.position.x + halfWidth + margin);
+        int minCellY = NodeClusterIndex.cellOf(camera.position.y - halfHeight - margin);
+        int maxCellY = NodeClusterIndex.cellOf(camera.position.y + halfHeight + margin);
+
+        lastNodeCount = 0;
+        lastClusterCount = 0;
+        lastPassCount = 0;
+        lastFlushCount = 0;
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                NodeClusterIndex.Cluster cluster = clusters.getCluster(cellX, cellY);
+                if (cluster == null) continue;
+
+                if (lastClusterCount++ == 0) beginPass(shapeRenderer, ShapeRenderer.ShapeType.Filled);
+                lastNodeCount += cluster.getCount();
+                shapeRenderer.setColor(cluster.getDominantType().color);
+                float pixels = Math.min(14, 4 + 1.5f * (float) Math.sqrt(cluster.getCount()));
+                float radius = Math.min(margin, pixels * camera.zoom);
+                shapeRenderer.circle(cluster.getCenterX(), cluster.getCenterY(), radius, CLUSTER_SEGMENTS);
+                countFlushes(shapeRenderer);
+            }
+        }
+        if (lastClusterCount > 0) endPass(shapeRenderer);
+    }
+
+    private static void circle(ShapeRenderer shapeRenderer, NodeStore store, int handle) {
+        float size = store.getDisplaySize(handle);
+        float radius = size / 2;
+        float centerX = store.getX(handle) + store.getSize(handle) / 2;
+        float centerY = store.getY(handle) + store.getSize(handle) / 2;
+        shapeRenderer.circle(centerX, centerY, radius, SEGMENTS);
+    }
+
+    private void beginPass(ShapeRenderer shapeRenderer, ShapeRenderer.ShapeType type) {
+        shapeRenderer.begin(type);
+        pendingVertices = 0;
+    }
+
+    /**
+     * À appeler après chaque forme : quand le tampon de sommets est plein, le ShapeRenderer
+     * l'envoie au GPU de lui-même avant d'écrire la forme, et le nombre de sommets en attente
+     * repart de zéro. Une baisse de ce nombre est donc un envoi (draw call) de plus.
+     */
+    private void countFlushes(ShapeRenderer shapeRenderer) {
+        int vertices = shapeRenderer.getRenderer().getNumVertices();
+        if (vertices < pendingVertices) addFlush();
+        pendingVertices = vertices;
+    }
+
+    /**
+     * Termine une passe ; end() envoie au GPU les sommets encore en attente, s'il y en a
+     */
+    private void endPass(ShapeRenderer shapeRenderer) {
+        if (shapeRenderer.getRenderer().getNumVertices() > 0) addFlush();
+        shapeRenderer.end();
+        lastPassCount++;
+    }
+
+    private void addFlush() {
+        lastFlushCount++;
+        totalFlushCount++;
+    }
+
+    private static float red(int rgba) { return ((rgba >>> 24) & 0xFF) / 255f; }
+    private static float green(int rgba) { return ((rgba >>> 16) & 0xFF) / 255f; }
+    private static float blue(int rgba) { return ((rgba >>> 8) & 0xFF) / 255f; }
+    private static float alpha(int rgba) { return (rgba & 0xFF) / 255f; }
+
+    public int getLastNodeCount() { return lastNodeCount; }
+    public int getLastClusterCount() { return lastClusterCount; }
+    public NodeClusterIndex getClusters() { return clusters; }
+    public int getLastPassCount() { return lastPassCount; }
+    public int getLastFlushCount() { return lastFlushCount; }
+    public long getTotalFlushCount() { return totalFlushCount; }
+
+    @Override
+    public String toString() {
+        return "ResourceNodeRenderer{nodes=" + lastNodeCount + ", clusters=" + lastClusterCount +
+            ", passes=" + lastPassCount + ", flushes=" + lastFlushCount + ", " + clusters + "}";
+    }
+}
@@ -5,12 +5,19 @@ import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Table;
+import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 
 public class Hud {
 
+    // Durée d'affichage d'un message (showMessage), en secondes
+    private static final float MESSAGE_SECONDS = 4f;
+
     public Stage stage;
     private Label zoomLabel;
+    private Label messageLabel;
+    private Label debugLabel;
+    private float messageTime;
 
     public Hud() {
         stage = new Stage(new ScreenViewport());
@@ -26,15 +33,52 @@ public class Hud {
 //        topBar.setBackground(skin.newDrawable("white", Color.DARK_GRAY));
 
         zoomLabel = new Label("Zoom: 1.0", skin);
+        messageLabel = new Label("", skin);
 
+        topBar.add(messageLabel).pad(10);
         topBar.add().expandX();
         topBar.add(zoomLabel).pad(10);
 
         root.top().add(topBar).expandX().fillX();
+
+        // Compteurs de debug (F5), sous la barre
+        debugLabel = new Label("", skin);
+        debugLabel.setAlignment(Align.topLeft);
+        debugLabel.setVisible(false);
+        root.row();
+        root.add(debugLabel).expandX().left().pad(10);
     }
 
     public void update(float zoom) {
         zoomLabel.setText(String.format("Zoom: %.2f", zoom));
+
+        if (messageTime > 0) {
+            messageTime -= Gdx.graphics.getDeltaTime();
+            if (messageTime <= 0) messageLabel.setText("");
+        }
+    }
+
+    /**
+     * Affiche un message dans la barre du haut pendant quelques secondes
+     */
+    public void showMessage(String message) {
+        messageLabel.setText(message);
+        messageTime = MESSAGE_SECONDS;
+    }
+
+    public void toggleDebug() {
+        debugLabel.setVisible(!debugLabel.isVisible());
+    }
+
+    public boolean isDebugVisible() {
+        return debugLabel.isVisible();
+    }
+
+    /**
+     * Texte des compteurs de debug (une ligne par système)
+     */
+    public void setDebugText(String text) {
+        debugLabel.setText(text);
     }
 
     public void draw() {
@@ -46,4 +90,3 @@ public class Hud {
         stage.dispose();
     }
 }
-
@@ -0,0 +1,140 @@
+package com.alexdev.factory.util;
+
+import java.util.Arrays;
+
+/**
+ * Ensemble de long sans boîtes (Long) : adressage ouvert, sondage linéaire.
+ * La clé 0 sert de case vide dans la table et est donc rangée à part.
+ * Les suppressions recalent les clés suivantes (pas de marqueurs de suppression).
+ *
+ * Non synchronisé.
+ */
+public class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean hasZero;
+
+    public LongHashSet() {
+        this(64);
+    }
+
+    /**
+     * @param expected nombre de clés attendu (la table grandit au besoin)
+     */
+    public LongHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * @return false si la clé était déjà présente
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return false;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > threshold) allocate(keys.length << 1);
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == 0) return hasZero;
+
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return false si la clé était absente
+     */
+    public boolean remove(long key) {
+        if (key == 0) {
+            if (!hasZero) return false;
+            hasZero = false;
+            size--;
+            return true;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) return false;
+            slot = (slot + 1) & mask;
+        }
+
+        // Recaler les clés de la même série qui pourraient occuper la case libérée
+        int free = slot;
+        int next = (slot + 1) & mask;
+        while (keys[next] != 0) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Copie des clés, dans un ordre quelconque
+     */
+    public long[] toArray() {
+        long[] result = new long[size];
+        int index = 0;
+        if (hasZero) result[index++] = 0;
+        for (long key : keys) {
+            if (key != 0) result[index++] = key;
+        }
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        long[] old = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+        if (old == null) return;
+
+        for (long key : old) {
+            if (key == 0) continue;
+            int slot = slot(key);
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = key;
+        }
+    }
+}
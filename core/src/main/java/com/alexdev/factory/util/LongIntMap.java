@@ -0,0 +1,151 @@
+package com.alexdev.factory.util;
+
+import java.util.Arrays;
+
+/**
+ * Map long -> int sans boîtes (ni Long ni Integer) : adressage ouvert, sondage linéaire,
+ * comme LongHashSet. La clé 0 sert de case vide dans la table et est donc rangée à part.
+ * Les suppressions recalent les clés suivantes (pas de marqueurs de suppression).
+ *
+ * Non synchronisé.
+ */
+public class LongIntMap {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean hasZero;
+    private int zeroValue;
+
+    public LongIntMap() {
+        this(64);
+    }
+
+    /**
+     * @param expected nombre de clés attendu (la table grandit au besoin)
+     */
+    public LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Associe value à la clé (remplace la valeur précédente)
+     */
+    public void put(long key, int value) {
+        if (key == 0) {
+            if (!hasZero) size++;
+            hasZero = true;
+            zeroValue = value;
+            return;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) allocate(keys.length << 1);
+    }
+
+    /**
+     * Valeur associée à la clé, ou defaultValue si elle est absente
+     */
+    public int get(long key, int defaultValue) {
+        if (key == 0) return hasZero ? zeroValue : defaultValue;
+
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) return hasZero;
+
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return valeur retirée, ou defaultValue si la clé était absente
+     */
+    public int remove(long key, int defaultValue) {
+        if (key == 0) {
+            if (!hasZero) return defaultValue;
+            hasZero = false;
+            size--;
+            return zeroValue;
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == 0) return defaultValue;
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+
+        // Recaler les clés de la même série qui pourraient occuper la case libérée
+        int free = slot;
+        int next = (slot + 1) & mask;
+        while (keys[next] != 0) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = 0;
+        size--;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+        if (oldKeys == null) return;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = slot(oldKeys[i]);
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.map.DevMap;
+import com.alexdev.factory.resource.ResourceNode;
+
+/**
+ * Résumé compact d'un chunk : histogramme des biomes et nombre de nodes par type de ressource.
+ * Permet de savoir sans lire ses tuiles ni ses nodes si un chunk peut contenir ce qu'on cherche.
+ */
+public class ChunkSummary {
+
+    private final short[] biomeCounts = new short[DevMap.TILE_TYPE_COUNT];
+    private final short[] resourceCounts = new short[ResourceNode.ResourceType.values().length];
+    private boolean hasTiles;
+
+    /**
+     * Recalcule l'histogramme des biomes à partir des tuiles du chunk
+     */
+    public void setTiles(byte[] tiles) {
+        for (int i = 0; i < biomeCounts.length; i++) biomeCounts[i] = 0;
+        for (byte tile : tiles) {
+            biomeCounts[tile]++;
+        }
+        hasTiles = true;
+    }
+
+    /**
+     * Déplace une tuile modifiée d'un biome à l'autre dans l'histogramme
+     */
+    public void changeTile(int oldType, int newType) {
+        biomeCounts[oldType]--;
+        biomeCounts[newType]++;
+    }
+
+    /**
+     * Ajoute delta au nombre de nodes du type donné
+     */
+    public void addResource(ResourceNode.ResourceType type, int delta) {
+        resourceCounts[type.ordinal()] += delta;
+    }
+
+    public boolean hasTiles() { return hasTiles; }
+    public int getBiomeCount(int tileType) { return biomeCounts[tileType]; }
+    public int getResourceCount(ResourceNode.ResourceType type) { return resourceCounts[type.ordinal()]; }
+
+    public boolean isEmpty() {
+        if (hasTiles) return false;
+        for (short count : resourceCounts) {
+            if (count != 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,191 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.map.ChunkCache;
+
+import java.util.HashMap;
+
+/**
+ * Grille d'occupation des tuiles, un bit par tuile.
+ * Chaque chunk occupé a un bitmap long[16] : un long couvre deux lignes de 32 tuiles
+ * (ligne paire dans les 32 bits de poids faible, ligne impaire dans les 32 bits de poids fort).
+ * Les rectangles sont testés, posés et effacés un mot (deux lignes) à la fois.
+ * Un chunk entièrement libre n'a pas de bitmap.
+ *
+ * À utiliser depuis le thread de rendu.
+ */
+public class OccupancyGrid {
+
+    static final int WORDS = ChunkCache.CHUNK_AREA / 64;
+
+    private final HashMap<Long, long[]> chunks = new HashMap<>();
+
+    // Dernier chunk consulté (les empreintes tiennent souvent dans un seul chunk)
+    private long lastKey;
+    private long[] lastBits;
+
+    /**
+     * Vrai si au moins une tuile du rectangle [x, x + w) x [y, y + h) est occupée
+     */
+    public boolean intersects(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0 || chunks.isEmpty()) return false;
+
+        int maxX = x + w - 1;
+        int maxY = y + h - 1;
+        for (int cy = y >> ChunkCache.CHUNK_SHIFT; cy <= maxY >> ChunkCache.CHUNK_SHIFT; cy++) {
+            for (int cx = x >> ChunkCache.CHUNK_SHIFT; cx <= maxX >> ChunkCache.CHUNK_SHIFT; cx++) {
+                long[] bits = bits(cx, cy, false);
+                if (bits == null) continue;
+
+                int baseX = cx << ChunkCache.CHUNK_SHIFT;
+                int baseY = cy << ChunkCache.CHUNK_SHIFT;
+                if (intersects(bits,
+                    Math.max(x, baseX) - baseX, Math.max(y, baseY) - baseY,
+                    Math.min(maxX, baseX + ChunkCache.CHUNK_MASK) - baseX,
+                    Math.min(maxY, baseY + ChunkCache.CHUNK_MASK) - baseY)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean isSet(int x, int y) {
+        long[] bits = bits(x >> ChunkCache.CHUNK_SHIFT, y >> ChunkCache.CHUNK_SHIFT, false);
+        if (bits == null) return false;
+        int index = ChunkCache.tileIndex(x & ChunkCache.CHUNK_MASK, y & ChunkCache.CHUNK_MASK);
+        return (bits[index >> 6] & (1L << (index & 63))) != 0;
+    }
+
+    /**
+     * Occupe toutes les tuiles du rectangle
+     */
+    public void set(int x, int y, int w, int h) {
+        update(x, y, w, h, true);
+    }
+
+    /**
+     * Libère toutes les tuiles du rectangle (les chunks redevenus vides perdent leur bitmap)
+     */
+    public void clear(int x, int y, int w, int h) {
+        update(x, y, w, h, false);
+    }
+
+    /**
+     * Nombre de tuiles occupées dans le rectangle
+     */
+    public int count(int x, int y, int w, int h) {
+        if (w <= 0 || h <= 0) return 0;
+
+        int total = 0;
+        int maxX = x + w - 1;
+        int maxY = y + h - 1;
+        for (int cy = y >> ChunkCache.CHUNK_SHIFT; cy <= maxY >> ChunkCache.CHUNK_SHIFT; cy++) {
+            for (int cx = x >> ChunkCache.CHUNK_SHIFT; cx <= maxX >> ChunkCache.CHUNK_SHIFT; cx++) {
+                long[] bits = bits(cx, cy, false);
+                if (bits == null) continue;
+
+                int baseX = cx << ChunkCache.CHUNK_SHIFT;
+                int baseY = cy << ChunkCache.CHUNK_SHIFT;
+                int lx0 = Math.max(x, baseX) - baseX;
+                int lx1 = Math.min(maxX, baseX + ChunkCache.CHUNK_MASK) - baseX;
+                int ly0 = Math.max(y, baseY) - baseY;
+                int ly1 = Math.min(maxY, baseY + ChunkCache.CHUNK_MASK) - baseY;
+                long rowMask = rowMask(lx0, lx1);
+                for (int ly = ly0; ly <= ly1; ly++) {
+                    total += Long.bitCount(bits[ly >> 1] & (rowMask << ((ly & 1) << 5)));
+                }
+            }
+        }
+        return total;
+    }
+
+    private void update(int x, int y, int w, int h, boolean occupied) {
+        if (w <= 0 || h <= 0) return;
+
+        int maxX = x + w - 1;
+        int maxY = y + h - 1;
+        for (int cy = y >> ChunkCache.CHUNK_SHIFT; cy <= maxY >> ChunkCache.CHUNK_SHIFT; cy++) {
+            for (int cx = x >> ChunkCache.CHUNK_SHIFT; cx <= maxX >> ChunkCache.CHUNK_SHIFT; cx++) {
+                long[] bits = bits(cx, cy, occupied);
+                if (bits == null) continue;
+
+                int baseX = cx << ChunkCache.CHUNK_SHIFT;
+                int baseY = cy << ChunkCache.CHUNK_SHIFT;
+                int lx0 = Math.max(x, baseX) - baseX;
+                int lx1 = Math.min(maxX, baseX + ChunkCache.CHUNK_MASK) - baseX;
+                int ly0 = Math.max(y, baseY) - baseY;
+                int ly1 = Math.min(maxY, baseY + ChunkCache.CHUNK_MASK) - baseY;
+
+                long rowMask = rowMask(lx0, lx1);
+                for (int ly = ly0; ly <= ly1; ly++) {
+                    long mask = rowMask << ((ly & 1) << 5);
+                    if (occupied) bits[ly >> 1] |= mask;
+                    else bits[ly >> 1] &= ~mask;
+                }
+
+                if (!occupied && isEmpty(bits)) {
+                    chunks.remove(ChunkCache.chunkKey(cx, cy));
+                    if (bits == lastBits) lastBits = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Bitmap du chunk (cx, cy), créé si create est vrai
+     */
+    long[] bits(int cx, int cy, boolean create) {
+        long key = ChunkCache.chunkKey(cx, cy);
+        if (lastBits != null && key == lastKey) return lastBits;
+
+        long[] bits = chunks.get(key);
+        if (bits == null) {
+            if (!create) return null;
+            bits = new long[WORDS];
+            chunks.put(key, bits);
+        }
+        lastKey = key;
+        lastBits = bits;
+        return bits;
+    }
+
+    /**
+     * Vrai si un bit du rectangle local [lx0, lx1] x [ly0, ly1] (bornes incluses) est à 1.
+     * Les paires de lignes entièrement couvertes sont testées en un seul mot.
+     */
+    static boolean intersects(long[] bits, int lx0, int ly0, int lx1, int ly1) {
+        long rowMask = rowMask(lx0, lx1);
+        long pairMask = rowMask | (rowMask << 32);
+
+        int ly = ly0;
+        if ((ly & 1) == 1) {
+            if ((bits[ly >> 1] & (rowMask << 32)) != 0) return true;
+            ly++;
+        }
+        for (; ly + 1 <= ly1; ly += 2) {
+            if ((bits[ly >> 1] & pairMask) != 0) return true;
+        }
+        return ly == ly1 && (bits[ly >> 1] & rowMask) != 0;
+    }
+
+    /**
+     * Masque des colonnes [lx0, lx1] d'une ligne (32 bits de poids faible)
+     */
+    static long rowMask(int lx0, int lx1) {
+        return ((1L << (lx1 - lx0 + 1)) - 1) << lx0;
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    public void clearAll() {
+        chunks.clear();
+        lastBits = null;
+    }
+
+    public int getChunkCount() { return chunks.size(); }
+}
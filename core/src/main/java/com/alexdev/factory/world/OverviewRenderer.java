@@ -0,0 +1,460 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.DevMap;
+import com.alexdev.factory.map.TileOverlay;
+import com.alexdev.factory.resource.ResourceManager;
+import com.alexdev.factory.resource.ResourceNode;
+import com.alexdev.factory.resource.SpawnTable;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rendu headless d'une vue d'ensemble du monde, sous forme de pyramide d'images PNG
+ * (comme les tuiles d'une carte web : &lt;dossier&gt;/&lt;zoom&gt;/&lt;x&gt;/&lt;y&gt;.png, zoom 0 = tout le monde,
+ * y compté depuis le haut). Au zoom maximal, un pixel = une tuile du monde.
+ *
+ * Les images sont produites par un quadtree de tâches fork-join : une feuille remplit
+ * ses tuiles d'un coup (DevMap.fillBaseTiles) et dessine les points de génération de ressources
+ * selon les règles de ResourceManager ; un nœud réduit les images de ses quatre enfants.
+ *
+ * Rendu incrémental : manifest.txt garde, pour chaque feuille, l'empreinte des modifications
+ * des joueurs (TileOverlay) de ses chunks. Une feuille dont l'empreinte n'a pas changé
+ * n'est pas redessinée, et un nœud dont aucun enfant n'a changé non plus.
+ *
+ * Usage : OverviewRenderer &lt;seed&gt; &lt;côté en tuiles&gt; [dossier de sortie] [threads] [dossier du monde]
+ */
+public class OverviewRenderer {
+
+    public static final int IMAGE_SIZE = 256; // pixels par côté d'une image
+    private static final String MANIFEST_FILE = "manifest.txt";
+    private static final int DOT_RADIUS = 1; // points de ressource de 3x3 pixels
+    private static final float PNG_COMPRESSION_QUALITY = 0.5f;
+
+    private final long seed;
+    private final int size;
+    private final File outputDirectory;
+
+    private final DevMap map;
+    private final ResourceManager spawnRules;
+    private final int[] biomeColors = new int[DevMap.TILE_TYPE_COUNT];
+    private final int[] resourceColors = new int[ResourceNode.ResourceType.values().length];
+
+    // Pyramide : imagesPerSide x imagesPerSide feuilles (puissance de 2), centrée sur l'origine
+    private final int imagesPerSide;
+    private final int topLevel;
+    private final int origin;
+
+    private final Map<Long, Long> previousManifest = new HashMap<>();
+    private final ConcurrentHashMap<Long, Long> manifest = new ConcurrentHashMap<>();
+    private boolean fullRender = true;
+
+    private final AtomicLong leavesRendered = new AtomicLong();
+    private final AtomicLong leavesReused = new AtomicLong();
+    private final AtomicLong imagesWritten = new AtomicLong();
+
+    public OverviewRenderer(long seed, int size, File outputDirectory) {
+        this.seed = seed;
+        this.size = size;
+        this.outputDirectory = outputDirectory;
+
+        this.map = new DevMap(seed);
+        this.spawnRules = new ResourceManager(map, seed);
+        spawnRules.setSpawnTable(SpawnTable.loadOrDefault(new FileHandle(SpawnTable.ASSET_PATH))); // dossier de travail : assets/
+
+        for (int type = 0; type < biomeColors.length; type++) {
+            biomeColors[type] = Color.argb8888(map.getPalette().getColor(type));
+        }
+        for (ResourceNode.ResourceType type : ResourceNode.ResourceType.values()) {
+            resourceColors[type.ordinal()] = Color.argb8888(type.color);
+        }
+
+        int needed = Math.max(1, (size + IMAGE_SIZE - 1) / IMAGE_SIZE);
+        int side = 1;
+        int level = 0;
+        while (side < needed) {
+            side <<= 1;
+            level++;
+        }
+        this.imagesPerSide = side;
+        this.topLevel = level;
+        this.origin = -(side * IMAGE_SIZE) / 2;
+    }
+
+    /**
+     * Modifications des joueurs à dessiner par-dessus le terrain procédural
+     */
+    public TileOverlay getOverlay() {
+        return map.getOverlay();
+    }
+
+    /**
+     * Rend la pyramide (seulement ce qui a changé depuis le dernier rendu) et affiche la progression
+     */
+    public void run(int threads) throws Exception {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create output directory " + outputDirectory);
+        }
+        readManifest();
+
+        long leaves = countLeaves();
+        System.out.println("Rendering overview of seed " + seed + ", " + size + "x" + size + " tiles (" + leaves +
+            " images at full zoom, " + (topLevel + 1) + " zoom levels) into " + outputDirectory + " with " +
+            threads + " threads" + (fullRender ? "" : " (incremental)"));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        ForkJoinTask<BufferedImage> root = pool.submit(new ImageTask(topLevel, 0, 0));
+
+        long lastReport = System.nanoTime();
+        while (!root.isDone()) {
+            Thread.sleep(50);
+            if (System.nanoTime() - lastReport > 2_000_000_000L) {
+                printProgress(start, leaves);
+                lastReport = System.nanoTime();
+            }
+        }
+        root.get(); // propage les erreurs
+        pool.shutdown();
+
+        writeManifest();
+        printProgress(start, leaves);
+        System.out.println("Done: " + leavesRendered.get() + " images rendered, " + leavesReused.get() +
+            " unchanged, " + imagesWritten.get() + " files written");
+    }
+
+    /**
+     * Image (level, tx, ty) de la pyramide, tx et ty comptés depuis le coin bas-gauche du monde.
+     * Résultat : l'image si elle a été (re)dessinée, null si le fichier existant est à jour.
+     */
+    private final class ImageTask extends RecursiveTask<BufferedImage> {
+        private static final long serialVersionUID = 1L;
+
+        private final int level;
+        private final int tx;
+        private final int ty;
+
+        ImageTask(int level, int tx, int ty) {
+            this.level = level;
+            this.tx = tx;
+            this.ty = ty;
+        }
+
+        @Override
+        protected BufferedImage compute() {
+            try {
+                return level == 0 ? renderLeaf(tx, ty) : renderNode();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private BufferedImage renderNode() throws IOException {
+            ImageTask[] children = new ImageTask[4];
+            for (int q = 0; q < 4; q++) {
+                int childX = tx * 2 + (q & 1);
+                int childY = ty * 2 + (q >> 1);
+                if (intersectsArea(level - 1, childX, childY)) {
+                    children[q] = new ImageTask(level - 1, childX, childY);
+                    children[q].fork();
+                }
+            }
+
+            BufferedImage[] images = new BufferedImage[4];
+            boolean changed = false;
+            for (int q = 3; q >= 0; q--) {
+                if (children[q] == null) continue;
+                images[q] = children[q].join();
+                if (images[q] != null) changed = true;
+            }
+
+            File file = imageFile(level, tx, ty);
+            if (!changed && file.exists()) return null;
+
+            // Les enfants inchangés sont relus depuis le disque
+            for (int q = 0; q < 4; q++) {
+                if (children[q] != null && images[q] == null) {
+                    images[q] = ImageIO.read(imageFile(level - 1, children[q].tx, children[q].ty));
+                }
+            }
+
+            BufferedImage image = downsample(images);
+            write(image, file);
+            return image;
+        }
+    }
+
+    private BufferedImage renderLeaf(int tx, int ty) throws IOException {
+        int x0 = origin + tx * IMAGE_SIZE;
+        int y0 = origin + ty * IMAGE_SIZE;
+        long key = ChunkCache.chunkKey(tx, ty);
+        long hash = overlayHash(x0, y0);
+        File file = imageFile(0, tx, ty);
+
+        manifest.put(key, hash);
+        Long previous = previousManifest.get(key);
+        if (!fullRender && previous != null && previous == hash && file.exists()) {
+            leavesReused.incrementAndGet();
+            return null;
+        }
+
+        byte[] tiles = new byte[IMAGE_SIZE * IMAGE_SIZE];
+        map.fillBaseTiles(x0, y0, IMAGE_SIZE, IMAGE_SIZE, tiles);
+
+        // Points de génération de ressources, sur la grille alignée du monde.
+        // Tirés sur le terrain procédural, comme en jeu (les modifications des joueurs n'y changent rien)
+        int spacing = ResourceManager.SPAWN_SPACING;
+        int firstX = Math.floorDiv(x0 + spacing - 1, spacing) * spacing;
+        int firstY = Math.floorDiv(y0 + spacing - 1, spacing) * spacing;
+        int pointsPerRow = (x0 + IMAGE_SIZE - firstX + spacing - 1) / spacing;
+        int pointRows = (y0 + IMAGE_SIZE - firstY + spacing - 1) / spacing;
+        ResourceNode.ResourceType[] spawns = new ResourceNode.ResourceType[pointsPerRow * pointRows];
+        for (int j = 0; j < pointRows; j++) {
+            int y = firstY + j * spacing;
+            for (int i = 0; i < pointsPerRow; i++) {
+                int x = firstX + i * spacing;
+                int tile = tiles[(y - y0) * IMAGE_SIZE + (x - x0)];
+                spawns[j * pointsPerRow + i] = spawnRules.spawnType(tile, spawnRules.spawnChance(x, y));
+            }
+        }
+
+        map.getOverlay().apply(x0, y0, IMAGE_SIZE, IMAGE_SIZE, tiles);
+
+        // Ligne 0 de l'image = haut de la zone (y le plus grand)
+        int[] pixels = new int[IMAGE_SIZE * IMAGE_SIZE];
+        for (int j = 0; j < IMAGE_SIZE; j++) {
+            int row = (IMAGE_SIZE - 1 - j) * IMAGE_SIZE;
+            for (int i = 0; i < IMAGE_SIZE; i++) {
+                pixels[row + i] = biomeColors[tiles[j * IMAGE_SIZE + i]];
+            }
+        }
+
+        for (int j = 0; j < pointRows; j++) {
+            int y = firstY + j * spacing;
+            for (int i = 0; i < pointsPerRow; i++) {
+                ResourceNode.ResourceType type = spawns[j * pointsPerRow + i];
+                if (type != null) {
+                    int x = firstX + i * spacing;
+                    drawDot(pixels, x - x0, IMAGE_SIZE - 1 - (y - y0), resourceColors[type.ordinal()]);
+                }
+            }
+        }
+
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, IMAGE_SIZE, IMAGE_SIZE, pixels, 0, IMAGE_SIZE);
+        write(image, file);
+        leavesRendered.incrementAndGet();
+        return image;
+    }
+
+    private static void drawDot(int[] pixels, int px, int py, int color) {
+        for (int y = Math.max(0, py - DOT_RADIUS); y <= Math.min(IMAGE_SIZE - 1, py + DOT_RADIUS); y++) {
+            for (int x = Math.max(0, px - DOT_RADIUS); x <= Math.min(IMAGE_SIZE - 1, px + DOT_RADIUS); x++) {
+                pixels[y * IMAGE_SIZE + x] = color;
+            }
+        }
+    }
+
+    /**
+     * Réduit quatre images (q = qx + 2 * qy, qy = 1 en haut) en une : moyenne de chaque bloc 2x2.
+     * Les enfants absents (hors de la zone) restent transparents.
+     */
+    private static BufferedImage downsample(BufferedImage[] children) {
+        int half = IMAGE_SIZE / 2;
+        int[] pixels = new int[IMAGE_SIZE * IMAGE_SIZE];
+        int[] source = new int[IMAGE_SIZE * IMAGE_SIZE];
+
+        for (int q = 0; q < 4; q++) {
+            if (children[q] == null) continue;
+            children[q].getRGB(0, 0, IMAGE_SIZE, IMAGE_SIZE, source, 0, IMAGE_SIZE);
+
+            int offsetX = (q & 1) * half;
+            int offsetY = (q >> 1) == 1 ? 0 : half;
+            for (int y = 0; y < half; y++) {
+                for (int x = 0; x < half; x++) {
+                    int s = (y * 2) * IMAGE_SIZE + x * 2;
+                    pixels[(offsetY + y) * IMAGE_SIZE + offsetX + x] =
+                        average(source[s], source[s + 1], source[s + IMAGE_SIZE], source[s + IMAGE_SIZE + 1]);
+                }
+            }
+        }
+
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, IMAGE_SIZE, IMAGE_SIZE, pixels, 0, IMAGE_SIZE);
+        return image;
+    }
+
+    /**
+     * Moyenne canal par canal de quatre couleurs ARGB
+     */
+    private static int average(int a, int b, int c, int d) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = ((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + ((c >>> shift) & 0xFF) + ((d >>> shift) & 0xFF);
+            result |= (sum >> 2) << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Empreinte des modifications des chunks couverts par la feuille d'origine (x0, y0)
+     */
+    private long overlayHash(int x0, int y0) {
+        TileOverlay overlay = map.getOverlay();
+        if (overlay.getModifiedChunkCount() == 0) return 0;
+
+        long hash = 0;
+        int chunksPerImage = IMAGE_SIZE >> ChunkCache.CHUNK_SHIFT;
+        int firstCx = x0 >> ChunkCache.CHUNK_SHIFT;
+        int firstCy = y0 >> ChunkCache.CHUNK_SHIFT;
+        for (int cy = firstCy; cy < firstCy + chunksPerImage; cy++) {
+            for (int cx = firstCx; cx < firstCx + chunksPerImage; cx++) {
+                long chunkHash = overlay.getContentHash(cx, cy);
+                if (chunkHash != 0) hash = hash * 31 + chunkHash * 17 + ChunkCache.chunkKey(cx, cy);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Vrai si l'image (level, tx, ty) recouvre la zone demandée (carré de côté size centré sur l'origine)
+     */
+    private boolean intersectsArea(int level, int tx, int ty) {
+        long span = (long) IMAGE_SIZE << level;
+        long minX = origin + tx * span;
+        long minY = origin + ty * span;
+        long half = (size + 1) / 2;
+        return minX < half && minX + span > -half && minY < half && minY + span > -half;
+    }
+
+    private long countLeaves() {
+        long count = 0;
+        for (int tx = 0; tx < imagesPerSide; tx++) {
+            for (int ty = 0; ty < imagesPerSide; ty++) {
+                if (intersectsArea(0, tx, ty)) count++;
+            }
+        }
+        return count;
+    }
+
+    private File imageFile(int level, int tx, int ty) {
+        int zoom = topLevel - level;
+        int rowsAtLevel = imagesPerSide >> level;
+        return new File(outputDirectory, zoom + File.separator + tx + File.separator + (rowsAtLevel - 1 - ty) + ".png");
+    }
+
+    private void write(BufferedImage image, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) throw new IOException("No PNG writer available");
+        ImageWriter writer = writers.next();
+
+        // Niveau de compression moyen : même taille de fichier que le réglage par défaut, encodage bien plus rapide
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(PNG_COMPRESSION_QUALITY);
+        }
+
+        if (file.exists() && !file.delete()) throw new IOException("Cannot replace " + file);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        imagesWritten.incrementAndGet();
+    }
+
+    /**
+     * Paramètres du rendu : un manifeste écrit avec d'autres paramètres impose un rendu complet
+     */
+    private String manifestHeader() {
+        return "overview seed=" + seed + " size=" + size + " image=" + IMAGE_SIZE;
+    }
+
+    private void readManifest() throws IOException {
+        File file = new File(outputDirectory, MANIFEST_FILE);
+        if (!file.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            if (!manifestHeader().equals(reader.readLine())) return;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length != 3) continue;
+                previousManifest.put(ChunkCache.chunkKey(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])),
+                    Long.parseLong(parts[2]));
+            }
+        }
+        fullRender = false;
+    }
+
+    private void writeManifest() throws IOException {
+        try (PrintWriter writer = new PrintWriter(new File(outputDirectory, MANIFEST_FILE))) {
+            writer.println(manifestHeader());
+            for (Map.Entry<Long, Long> entry : manifest.entrySet()) {
+                writer.println(ChunkCache.chunkX(entry.getKey()) + " " + ChunkCache.chunkY(entry.getKey()) + " " + entry.getValue());
+            }
+        }
+    }
+
+    private void printProgress(long start, long leaves) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long done = leavesRendered.get() + leavesReused.get();
+        System.out.printf("%d/%d images (%.1f%%), %.1f Mtiles/s, %d files written%n",
+            done, leaves, 100.0 * done / Math.max(1, leaves),
+            leavesRendered.get() * (double) (IMAGE_SIZE * IMAGE_SIZE) / Math.max(seconds, 1e-9) / 1e6,
+            imagesWritten.get());
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: OverviewRenderer <seed> <size in tiles> [output dir] [threads] [world dir]");
+            System.exit(1);
+        }
+
+        long seed = Long.parseLong(args[0]);
+        int size = Integer.parseInt(args[1]);
+        File output = new File(args.length > 2 ? args[2] : "overview/" + seed);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        File world = new File(args.length > 4 ? args[4] : "world/" + seed);
+
+        OverviewRenderer renderer = new OverviewRenderer(seed, size, output);
+        if (world.isDirectory()) {
+            RegionStore store = new RegionStore(world);
+            if (store.loadOverlay(renderer.getOverlay())) {
+                System.out.println("Player modifications loaded from " + world + ": " +
+                    renderer.getOverlay().getModifiedTileCount() + " tiles");
+            }
+            store.close();
+        }
+        renderer.run(threads);
+    }
+}
@@ -0,0 +1,245 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.DevMap;
+import com.alexdev.factory.resource.NodeStore;
+import com.alexdev.factory.resource.ResourceManager;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Validité du placement des bâtiments (foreuses, fours, tapis...), en tuiles.
+ * Une empreinte est valide si aucune de ses tuiles n'est infranchissable (DevMap.isWalkable),
+ * occupée par une structure ou couverte par un node de ressource.
+ * Les trois contraintes sont des bitmaps par chunk (voir OccupancyGrid) testées un mot à la fois :
+ * - structures : posées et retirées par place / remove ;
+ * - ressources : tenues à jour par les événements de ResourceManager ;
+ * - terrain : calculé à la demande depuis les tuiles du ChunkCache et reconstruit
+ *   si le chunk change (nouveau tableau ou nouvelle révision de l'overlay).
+ *   Un chunk absent du cache n'est jamais généré ici (c'est le rôle de ChunkGenerationService) :
+ *   l'empreinte est TERRAIN_PENDING jusqu'à ce qu'il soit chargé.
+ *
+ * À utiliser depuis le thread de rendu.
+ */
+public class PlacementGrid implements ResourceManager.NodeListener {
+
+    private static final int TILE_SIZE = 32; // pixels monde par tuile
+
+    public enum Result {
+        OK,
+        BLOCKED_BY_TERRAIN,
+        BLOCKED_BY_STRUCTURE,
+        BLOCKED_BY_RESOURCE,
+        TERRAIN_PENDING // chunk pas encore chargé : réessayer plus tard
+    }
+
+    /**
+     * Tuiles infranchissables d'un chunk, et les tuiles dont elles ont été calculées
+     */
+    private static final class TerrainMask {
+        byte[] source;
+        int revision;
+        final long[] bits = new long[OccupancyGrid.WORDS];
+        boolean empty;
+    }
+
+    private final ChunkCache cache;
+    private final DevMap map;
+    private final ResourceManager resources;
+    private final OccupancyGrid structures = new OccupancyGrid();
+    private final OccupancyGrid resourceTiles = new OccupancyGrid();
+    private final LinkedHashMap<Long, TerrainMask> terrain;
+    private final IntArray neighbours = new IntArray();
+
+    public PlacementGrid(ChunkCache cache, ResourceManager resources) {
+        this.cache = cache;
+        this.map = cache.getMap();
+        this.resources = resources;
+
+        final int capacity = cache.getCapacity();
+        this.terrain = new LinkedHashMap<Long, TerrainMask>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TerrainMask> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Vérifie l'empreinte [x, x + w) x [y, y + h) (en tuiles)
+     * @param allowOnResources vrai pour les bâtiments posés sur un gisement (foreuses)
+     */
+    public Result check(int x, int y, int w, int h, boolean allowOnResources) {
+        if (structures.intersects(x, y, w, h)) return Result.BLOCKED_BY_STRUCTURE;
+        if (!allowOnResources && resourceTiles.intersects(x, y, w, h)) return Result.BLOCKED_BY_RESOURCE;
+        return checkTerrain(x, y, w, h);
+    }
+
+    public boolean canPlace(int x, int y, int w, int h) {
+        return check(x, y, w, h, false) == Result.OK;
+    }
+
+    /**
+     * Occupe l'empreinte si elle est valide
+     * @return le résultat de la vérification (l'empreinte n'est occupée que si OK)
+     */
+    public Result place(int x, int y, int w, int h, boolean allowOnResources) {
+        Result result = check(x, y, w, h, allowOnResources);
+        if (result == Result.OK) {
+            structures.set(x, y, w, h);
+        }
+        return result;
+    }
+
+    /**
+     * Occupe l'empreinte sans la vérifier (structures rechargées d'une sauvegarde)
+     */
+    public void occupy(int x, int y, int w, int h) {
+        structures.set(x, y, w, h);
+    }
+
+    /**
+     * Libère l'empreinte d'une structure retirée
+     */
+    public void remove(int x, int y, int w, int h) {
+        structures.clear(x, y, w, h);
+    }
+
+    /**
+     * Vérifie une ligne d'empreintes w x h tirée de (startX, startY) vers (endX, endY),
+     * comme un glisser-déposer de tapis : les empreintes se suivent sur l'axe dominant,
+     * l'autre coordonnée reste celle du départ.
+     * @param results reçoit la validité de chaque empreinte (peut être null)
+     * @return nombre d'empreintes valides
+     */
+    public int checkLine(int startX, int startY, int endX, int endY, int w, int h, boolean[] results) {
+        boolean horizontal = Math.abs(endX - startX) >= Math.abs(endY - startY);
+        int stride = horizontal ? w : h;
+        int distance = horizontal ? endX - startX : endY - startY;
+        int direction = distance < 0 ? -1 : 1;
+        int steps = Math.abs(distance) / stride + 1;
+        if (results != null && results.length < steps) {
+            throw new IllegalArgumentException("results must hold " + steps + " entries");
+        }
+
+        int valid = 0;
+        for (int i = 0; i < steps; i++) {
+            int offset = i * stride * direction;
+            boolean ok = horizontal ? canPlace(startX + offset, startY, w, h) : canPlace(startX, startY + offset, w, h);
+            if (results != null) results[i] = ok;
+            if (ok) valid++;
+        }
+        return valid;
+    }
+
+    /**
+     * Nombre d'empreintes d'une ligne (taille minimale du tableau de checkLine)
+     */
+    public static int lineLength(int startX, int startY, int endX, int endY, int w, int h) {
+        boolean horizontal = Math.abs(endX - startX) >= Math.abs(endY - startY);
+        return Math.abs(horizontal ? endX - startX : endY - startY) / (horizontal ? w : h) + 1;
+    }
+
+    @Override
+    public void nodeAdded(NodeStore store, int handle) {
+        markNode(store.getX(handle), store.getY(handle), store.getSize(handle));
+    }
+
+    @Override
+    public void nodeRemoved(NodeStore store, int handle) {
+        float x = store.getX(handle);
+        float y = store.getY(handle);
+        float size = store.getSize(handle);
+        int minX = tileOf(x);
+        int minY = tileOf(y);
+        int maxX = tileOf(x + size - 1);
+        int maxY = tileOf(y + size - 1);
+        resourceTiles.clear(minX, minY, maxX - minX + 1, maxY - minY + 1);
+
+        // Les nodes voisins qui partageaient ces tuiles les occupent toujours
+        resources.getHandlesInArea(minX * TILE_SIZE, minY * TILE_SIZE,
+            (maxX + 1) * TILE_SIZE - 1, (maxY + 1) * TILE_SIZE - 1, neighbours);
+        for (int i = 0; i < neighbours.size; i++) {
+            int other = neighbours.get(i);
+            if (other != handle) markNode(store.getX(other), store.getY(other), store.getSize(other));
+        }
+    }
+
+    @Override
+    public void nodeChanged(NodeStore store, int handle, int oldAmount) {
+        // La quantité restante n'intervient pas ici
+    }
+
+    private void markNode(float x, float y, float size) {
+        int minX = tileOf(x);
+        int minY = tileOf(y);
+        int maxX = tileOf(x + size - 1);
+        int maxY = tileOf(y + size - 1);
+        resourceTiles.set(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /**
+     * BLOCKED_BY_TERRAIN si une tuile de l'empreinte est infranchissable,
+     * TERRAIN_PENDING si l'un de ses chunks n'est pas encore chargé
+     */
+    private Result checkTerrain(int x, int y, int w, int h) {
+        int maxX = x + w - 1;
+        int maxY = y + h - 1;
+        for (int cy = y >> ChunkCache.CHUNK_SHIFT; cy <= maxY >> ChunkCache.CHUNK_SHIFT; cy++) {
+            for (int cx = x >> ChunkCache.CHUNK_SHIFT; cx <= maxX >> ChunkCache.CHUNK_SHIFT; cx++) {
+                TerrainMask mask = terrainMask(cx, cy);
+                if (mask == null) return Result.TERRAIN_PENDING;
+                if (mask.empty) continue;
+
+                int baseX = cx << ChunkCache.CHUNK_SHIFT;
+                int baseY = cy << ChunkCache.CHUNK_SHIFT;
+                if (OccupancyGrid.intersects(mask.bits,
+                    Math.max(x, baseX) - baseX, Math.max(y, baseY) - baseY,
+                    Math.min(maxX, baseX + ChunkCache.CHUNK_MASK) - baseX,
+                    Math.min(maxY, baseY + ChunkCache.CHUNK_MASK) - baseY)) {
+                    return Result.BLOCKED_BY_TERRAIN;
+                }
+            }
+        }
+        return Result.OK;
+    }
+
+    /**
+     * Masque du terrain du chunk, ou null s'il n'est pas en cache
+     */
+    private TerrainMask terrainMask(int cx, int cy) {
+        long key = ChunkCache.chunkKey(cx, cy);
+        byte[] tiles = cache.getChunkIfPresent(cx, cy);
+        if (tiles == null) return null;
+        int revision = map.getOverlay().getRevision(cx, cy);
+
+        TerrainMask mask = terrain.get(key);
+        if (mask != null && mask.source == tiles && mask.revision == revision) return mask;
+
+        if (mask == null) {
+            mask = new TerrainMask();
+            terrain.put(key, mask);
+        }
+        mask.source = tiles;
+        mask.revision = revision;
+        mask.empty = true;
+        for (int w = 0; w < OccupancyGrid.WORDS; w++) {
+            long word = 0;
+            for (int bit = 0; bit < 64; bit++) {
+                if (!map.isWalkable(tiles[(w << 6) | bit])) word |= 1L << bit;
+            }
+            mask.bits[w] = word;
+            if (word != 0) mask.empty = false;
+        }
+        return mask;
+    }
+
+    private static int tileOf(float worldCoordinate) {
+        return (int) Math.floor(worldCoordinate / TILE_SIZE);
+    }
+
+    public OccupancyGrid getStructures() { return structures; }
+    public OccupancyGrid getResourceTiles() { return resourceTiles; }
+}
@@ -0,0 +1,141 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.map.ChunkCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Fichier de région : REGION_SIZE x REGION_SIZE chunks dans un seul fichier projeté en mémoire.
+ *
+ * Format :
+ * - en-tête : magic, version, nombre de slots utilisés, puis une table de décalages
+ *   (un int par chunk : index du slot + 1, 0 si le chunk n'a jamais été écrit) ;
+ * - slots de taille fixe SLOT_SIZE, alloués à la suite dans l'ordre d'écriture :
+ *   tuiles du chunk (CHUNK_AREA octets) puis drapeaux.
+ * Les nodes de ressources n'y sont pas : ils se régénèrent à partir de la graine
+ * et leurs modifications sont enregistrées à part (RegionStore.saveNodeDeltas).
+ *
+ * Toutes les méthodes sont synchronisées : le fichier peut être partagé
+ * entre le thread de rendu et les workers de génération.
+ */
+public class RegionFile {
+
+    public static final int REGION_SHIFT = 5;
+    public static final int REGION_SIZE = 1 << REGION_SHIFT; // 32 x 32 chunks
+    public static final int REGION_MASK = REGION_SIZE - 1;
+    private static final int CHUNKS_PER_REGION = REGION_SIZE * REGION_SIZE;
+
+    private static final int MAGIC = 0x46524731; // "FRG1"
+    private static final int VERSION = 2; // 2 : slots sans nodes
+    private static final int TABLE_OFFSET = 16;
+    private static final int HEADER_SIZE = 8192; // en-tête + table (4 Ko), arrondi
+
+    // Contenu d'un slot : tuiles, puis drapeaux (arrondi à 4 octets)
+    private static final int FLAGS_OFFSET = ChunkCache.CHUNK_AREA;
+    private static final int SLOT_SIZE = FLAGS_OFFSET + 4;
+
+    private static final int FLAG_TILES = 1;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    public RegionFile(File file) throws IOException {
+        this.file = file;
+        boolean created = !file.exists() || file.length() == 0;
+
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        // Projection de la capacité maximale : les slots non écrits restent creux sur disque
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) CHUNKS_PER_REGION * SLOT_SIZE);
+
+        if (created) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, 0);
+        } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            close();
+            throw new IOException("Not a region file (or unsupported version): " + file);
+        }
+    }
+
+    /**
+     * Vrai si les tuiles du chunk (coordonnées locales à la région) ont été enregistrées
+     */
+    public synchronized boolean hasTiles(int localX, int localY) {
+        int slot = slotOffset(localX, localY);
+        return slot >= 0 && (buffer.get(slot + FLAGS_OFFSET) & FLAG_TILES) != 0;
+    }
+
+    /**
+     * Copie les tuiles enregistrées du chunk dans dst. La copie est voulue : les chunks
+     * de ChunkCache sont des byte[] modifiables (setTile), indépendants du fichier projeté.
+     * @return false si le chunk n'a pas de tuiles enregistrées
+     */
+    public synchronized boolean readTiles(int localX, int localY, byte[] dst) {
+        int slot = slotOffset(localX, localY);
+        if (slot < 0 || (buffer.get(slot + FLAGS_OFFSET) & FLAG_TILES) == 0) return false;
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(slot);
+        view.get(dst, 0, ChunkCache.CHUNK_AREA);
+        return true;
+    }
+
+    public synchronized void writeTiles(int localX, int localY, byte[] tiles) {
+        int slot = allocateSlot(localX, localY);
+
+        ByteBuffer view = buffer.duplicate();
+        view.position(slot);
+        view.put(tiles, 0, ChunkCache.CHUNK_AREA);
+        buffer.put(slot + FLAGS_OFFSET, (byte) (buffer.get(slot + FLAGS_OFFSET) | FLAG_TILES));
+    }
+
+    /**
+     * Décalage du slot du chunk dans le fichier, ou -1 s'il n'a jamais été écrit
+     */
+    private int slotOffset(int localX, int localY) {
+        int entry = buffer.getInt(tableOffset(localX, localY));
+        return entry == 0 ? -1 : HEADER_SIZE + (entry - 1) * SLOT_SIZE;
+    }
+
+    private int allocateSlot(int localX, int localY) {
+        int offset = slotOffset(localX, localY);
+        if (offset >= 0) return offset;
+
+        // Compteur relu dans la projection (partagée si le fichier est ouvert deux fois)
+        int slot = buffer.getInt(8);
+        buffer.putInt(8, slot + 1);
+        buffer.putInt(tableOffset(localX, localY), slot + 1);
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int tableOffset(int localX, int localY) {
+        if (localX < 0 || localX >= REGION_SIZE || localY < 0 || localY >= REGION_SIZE) {
+            throw new IllegalArgumentException("Local chunk coordinates out of region: " + localX + ", " + localY);
+        }
+        return TABLE_OFFSET + ((localY << REGION_SHIFT) | localX) * 4;
+    }
+
+    /**
+     * Force l'écriture des pages modifiées sur le disque
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        raf.close();
+    }
+
+    public File getFile() { return file; }
+    public synchronized int getSlotCount() { return buffer.getInt(8); }
+}
@@ -0,0 +1,225 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.inventory.Inventory;
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.TileOverlay;
+import com.alexdev.factory.production.DrillSystem;
+import com.alexdev.factory.resource.NodeDeltaStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stockage persistant du monde, découpé en fichiers de région (voir RegionFile).
+ * Les fichiers sont ouverts à la demande et les moins récemment utilisés sont refermés
+ * au-delà de maxOpenRegions. Adressage par coordonnées de chunk.
+ *
+ * Thread-safe : partagé entre le thread de rendu et les workers de génération.
+ * Tous les accès aux RegionFile se font sous le verrou du store, si bien qu'un fichier
+ * n'est jamais refermé (éviction LRU) pendant qu'un autre thread l'utilise, et qu'une région
+ * n'a jamais deux projections ouvertes en même temps.
+ */
+public class RegionStore {
+
+    private static final int TILE_SIZE = 32; // pixels monde par tuile
+    private static final String OVERLAY_FILE = "overlay.dat";
+    private static final String NODE_DELTAS_FILE = "nodes.dat";
+    private static final String DRILLS_FILE = "drills.dat";
+
+    private final File directory;
+    private final int maxOpenRegions;
+    private final LinkedHashMap<Long, RegionFile> regions;
+    private boolean closed;
+
+    public RegionStore(File directory, int maxOpenRegions) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new UncheckedIOException(new IOException("Cannot create world directory " + directory));
+        }
+
+        this.directory = directory;
+        this.maxOpenRegions = maxOpenRegions;
+        this.regions = new LinkedHashMap<Long, RegionFile>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, RegionFile> eldest) {
+                if (size() <= RegionStore.this.maxOpenRegions) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public RegionStore(File directory) {
+        this(directory, 16);
+    }
+
+    /**
+     * Copie les tuiles enregistrées du chunk (cx, cy) dans dst
+     * @return false si le chunk n'a jamais été enregistré
+     */
+    public synchronized boolean readTiles(int cx, int cy, byte[] dst) {
+        RegionFile region = region(cx, cy, false);
+        return region != null && region.readTiles(cx & RegionFile.REGION_MASK, cy & RegionFile.REGION_MASK, dst);
+    }
+
+    public synchronized void writeTiles(int cx, int cy, byte[] tiles) {
+        region(cx, cy, true).writeTiles(cx & RegionFile.REGION_MASK, cy & RegionFile.REGION_MASK, tiles);
+    }
+
+    /**
+     * Enregistre l'état des nodes modifiés (fichier séparé, remplacé en entier)
+     */
+    public void saveNodeDeltas(NodeDeltaStore deltas) {
+        writeAtomically(NODE_DELTAS_FILE, deltas::write);
+    }
+
+    /**
+     * Recharge l'état des nodes modifiés
+     * @return false si aucun n'a été enregistré
+     */
+    public boolean loadNodeDeltas(NodeDeltaStore deltas) {
+        return read(NODE_DELTAS_FILE, deltas::read);
+    }
+
+    /**
+     * Enregistre les foreuses (fichier séparé, remplacé en entier)
+     */
+    public void saveDrills(DrillSystem drills) {
+        writeAtomically(DRILLS_FILE, drills::write);
+    }
+
+    /**
+     * Recharge les foreuses (voir DrillSystem.read)
+     * @return false si aucune n'a été enregistrée
+     */
+    public boolean loadDrills(DrillSystem drills, Inventory... outputs) {
+        return read(DRILLS_FILE, in -> drills.read(in, outputs));
+    }
+
+    /**
+     * Chunk contenant la coordonnée monde (en pixels)
+     */
+    public static int chunkOf(float worldCoordinate) {
+        return (int) Math.floor(worldCoordinate / TILE_SIZE) >> ChunkCache.CHUNK_SHIFT;
+    }
+
+    /**
+     * Enregistre les modifications des joueurs (fichier séparé, remplacé en entier)
+     */
+    public void saveOverlay(TileOverlay overlay) {
+        writeAtomically(OVERLAY_FILE, overlay::write);
+    }
+
+    /**
+     * Recharge les modifications des joueurs
+     * @return false si aucune n'a été enregistrée
+     */
+    public boolean loadOverlay(TileOverlay overlay) {
+        return read(OVERLAY_FILE, overlay::read);
+    }
+
+    /**
+     * Écriture d'un fichier séparé (voir writeAtomically)
+     */
+    private interface Writer {
+        void write(DataOutput out) throws IOException;
+    }
+
+    private interface Reader {
+        void read(DataInput in) throws IOException;
+    }
+
+    /**
+     * Écrit un fichier séparé dans un fichier temporaire, le force sur le disque, puis le met
+     * à la place de l'ancien en un seul déplacement atomique : un arrêt brutal laisse
+     * l'ancienne version ou la nouvelle, jamais aucune.
+     */
+    private void writeAtomically(String name, Writer writer) {
+        File file = new File(directory, name);
+        File temporary = new File(directory, name + ".tmp");
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temporary)) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+                writer.write(out);
+                out.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return false si le fichier n'existe pas
+     */
+    private boolean read(String name, Reader reader) {
+        File file = new File(directory, name);
+        if (!file.exists()) return false;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            reader.read(in);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized RegionFile region(int cx, int cy, boolean create) {
+        if (closed) throw new IllegalStateException("Region store is closed: " + directory);
+
+        int rx = cx >> RegionFile.REGION_SHIFT;
+        int ry = cy >> RegionFile.REGION_SHIFT;
+        long key = ChunkCache.chunkKey(rx, ry);
+
+        RegionFile region = regions.get(key);
+        if (region != null) return region;
+
+        File file = new File(directory, "r." + rx + "." + ry + ".dat");
+        if (!create && !file.exists()) return null;
+
+        try {
+            region = new RegionFile(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        regions.put(key, region);
+        return region;
+    }
+
+    public synchronized void flush() {
+        for (RegionFile region : regions.values()) {
+            region.flush();
+        }
+    }
+
+    public synchronized void close() {
+        for (RegionFile region : regions.values()) {
+            closeQuietly(region);
+        }
+        regions.clear();
+        closed = true;
+    }
+
+    private static void closeQuietly(RegionFile region) {
+        try {
+            region.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close region file " + region.getFile() + ": " + e.getMessage());
+        }
+    }
+
+    public File getDirectory() { return directory; }
+}
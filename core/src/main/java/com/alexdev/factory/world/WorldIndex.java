@@ -0,0 +1,191 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.ChunkGenerationService;
+import com.alexdev.factory.resource.NodeStore;
+import com.alexdev.factory.resource.ResourceManager;
+import com.alexdev.factory.resource.ResourceNode;
+import com.badlogic.gdx.math.GridPoint2;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Index de recherche du monde basé sur des résumés par chunk (voir ChunkSummary).
+ * Les résumés sont mis à jour au fil de la génération (chunks publiés, nodes ajoutés ou retirés)
+ * et des modifications de tuiles (ChunkCache.setTile).
+ * Les recherches parcourent des anneaux de chunks de plus en plus grands autour du point
+ * de départ et ne lisent les tuiles ou les nodes que des chunks dont le résumé correspond.
+ * Seuls les chunks déjà générés sont connus de l'index.
+ *
+ * À utiliser depuis le thread de rendu.
+ */
+public class WorldIndex implements ChunkGenerationService.ChunkListener, ChunkCache.TileListener,
+    ResourceManager.NodeListener {
+
+    private static final int TILE_SIZE = 32; // pixels monde par tuile
+    private static final int CHUNK_PIXELS = TILE_SIZE << ChunkCache.CHUNK_SHIFT;
+    private static final float MAX_NODE_SIZE = 64; // marge : un node peut déborder de son chunk
+
+    private final HashMap<Long, ChunkSummary> summaries = new HashMap<>();
+    private final ChunkCache cache;
+    private final ResourceManager resources;
+
+    // Nombre de résumés consultés par la dernière recherche
+    private int lastSummariesVisited;
+
+    public WorldIndex(ChunkCache cache, ResourceManager resources) {
+        this.cache = cache;
+        this.resources = resources;
+    }
+
+    @Override
+    public void chunkReady(int cx, int cy, byte[] tiles) {
+        summary(cx, cy, true).setTiles(tiles);
+    }
+
+    @Override
+    public void tileChanged(int x, int y, int oldType, int newType) {
+        // Un chunk sans histogramme le recevra entier à sa publication
+        ChunkSummary summary = summary(x >> ChunkCache.CHUNK_SHIFT, y >> ChunkCache.CHUNK_SHIFT, false);
+        if (summary != null && summary.hasTiles()) summary.changeTile(oldType, newType);
+    }
+
+    @Override
+    public void nodeAdded(NodeStore store, int handle) {
+        summary(RegionStore.chunkOf(store.getX(handle)), RegionStore.chunkOf(store.getY(handle)), true)
+            .addResource(store.getType(handle), 1);
+    }
+
+    @Override
+    public void nodeRemoved(NodeStore store, int handle) {
+        int cx = RegionStore.chunkOf(store.getX(handle));
+        int cy = RegionStore.chunkOf(store.getY(handle));
+        ChunkSummary summary = summary(cx, cy, false);
+        if (summary == null) return;
+
+        summary.addResource(store.getType(handle), -1);
+        if (summary.isEmpty()) {
+            summaries.remove(ChunkCache.chunkKey(cx, cy));
+        }
+    }
+
+    @Override
+    public void nodeChanged(NodeStore store, int handle, int oldAmount) {
+        // La quantité restante n'intervient pas ici
+    }
+
+    /**
+     * Cherche la tuile du biome donné la plus proche de (tileX, tileY)
+     * @param maxRadius rayon maximal de recherche, en chunks
+     * @param out reçoit la position de la tuile trouvée
+     * @return false si aucun chunk connu du rayon ne contient ce biome
+     */
+    public boolean findNearestBiome(int tileX, int tileY, int biome, int maxRadius, GridPoint2 out) {
+        int centerX = tileX >> ChunkCache.CHUNK_SHIFT;
+        int centerY = tileY >> ChunkCache.CHUNK_SHIFT;
+        long bestDistance = Long.MAX_VALUE;
+        int visited = 0;
+
+        for (int r = 0; r <= maxRadius; r++) {
+            // Aucune tuile de cet anneau ne peut être plus proche que le meilleur résultat
+            long ringDistance = Math.max(0, (r - 1) * ChunkCache.CHUNK_SIZE);
+            if (ringDistance * ringDistance > bestDistance) break;
+
+            for (int cx = centerX - r; cx <= centerX + r; cx++) {
+                for (int cy = centerY - r; cy <= centerY + r; cy++) {
+                    if (Math.abs(cx - centerX) != r && Math.abs(cy - centerY) != r) continue;
+
+                    ChunkSummary summary = summaries.get(ChunkCache.chunkKey(cx, cy));
+                    visited++;
+                    if (summary == null || !summary.hasTiles() || summary.getBiomeCount(biome) == 0) continue;
+
+                    byte[] tiles = cache.getChunk(cx, cy);
+                    int baseX = cx << ChunkCache.CHUNK_SHIFT;
+                    int baseY = cy << ChunkCache.CHUNK_SHIFT;
+                    for (int ly = 0; ly < ChunkCache.CHUNK_SIZE; ly++) {
+                        for (int lx = 0; lx < ChunkCache.CHUNK_SIZE; lx++) {
+                            if (tiles[ChunkCache.tileIndex(lx, ly)] != biome) continue;
+
+                            long dx = baseX + lx - tileX;
+                            long dy = baseY + ly - tileY;
+                            long distance = dx * dx + dy * dy;
+                            if (distance < bestDistance) {
+                                bestDistance = distance;
+                                out.set(baseX + lx, baseY + ly);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        lastSummariesVisited = visited;
+        return bestDistance != Long.MAX_VALUE;
+    }
+
+    /**
+     * Cherche le node non épuisé du type donné le plus proche de (worldX, worldY)
+     * @param maxRadius rayon maximal de recherche, en chunks
+     * @return le node trouvé, ou null
+     */
+    public ResourceNode findNearestResource(float worldX, float worldY, ResourceNode.ResourceType type, int maxRadius) {
+        int centerX = RegionStore.chunkOf(worldX);
+        int centerY = RegionStore.chunkOf(worldY);
+        ResourceNode best = null;
+        float bestDistance = Float.MAX_VALUE;
+        int visited = 0;
+
+        for (int r = 0; r <= maxRadius; r++) {
+            float ringDistance = Math.max(0, (r - 1) * CHUNK_PIXELS - MAX_NODE_SIZE);
+            if (best != null && ringDistance * ringDistance > bestDistance) break;
+
+            for (int cx = centerX - r; cx <= centerX + r; cx++) {
+                for (int cy = centerY - r; cy <= centerY + r; cy++) {
+                    if (Math.abs(cx - centerX) != r && Math.abs(cy - centerY) != r) continue;
+
+                    ChunkSummary summary = summaries.get(ChunkCache.chunkKey(cx, cy));
+                    visited++;
+                    if (summary == null || summary.getResourceCount(type) == 0) continue;
+
+                    float minX = cx * CHUNK_PIXELS;
+                    float minY = cy * CHUNK_PIXELS;
+                    List<ResourceNode> candidates = resources.getNodesInArea(minX, minY,
+                        minX + CHUNK_PIXELS - 1, minY + CHUNK_PIXELS - 1);
+                    for (ResourceNode node : candidates) {
+                        if (node.getType() != type || node.isDepleted()) continue;
+                        if (RegionStore.chunkOf(node.getX()) != cx || RegionStore.chunkOf(node.getY()) != cy) continue;
+
+                        float dx = node.getX() + node.getSize() / 2 - worldX;
+                        float dy = node.getY() + node.getSize() / 2 - worldY;
+                        float distance = dx * dx + dy * dy;
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = node;
+                        }
+                    }
+                }
+            }
+        }
+
+        lastSummariesVisited = visited;
+        return best;
+    }
+
+    private ChunkSummary summary(int cx, int cy, boolean create) {
+        long key = ChunkCache.chunkKey(cx, cy);
+        ChunkSummary summary = summaries.get(key);
+        if (summary == null && create) {
+            summary = new ChunkSummary();
+            summaries.put(key, summary);
+        }
+        return summary;
+    }
+
+    public ChunkSummary getSummary(int cx, int cy) {
+        return summaries.get(ChunkCache.chunkKey(cx, cy));
+    }
+
+    public int getSummaryCount() { return summaries.size(); }
+    public int getLastSummariesVisited() { return lastSummariesVisited; }
+}
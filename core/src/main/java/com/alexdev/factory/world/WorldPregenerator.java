@@ -0,0 +1,182 @@
+package com.alexdev.factory.world;
+
+import com.alexdev.factory.map.ChunkCache;
+import com.alexdev.factory.map.DevMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pré-génération headless du monde autour du spawn, sur tous les cœurs.
+ * Chaque tâche prend une région entière (un fichier), génère les tuiles de ses chunks
+ * dans le rayon demandé avec DevMap, puis les enregistre. Les nodes de ressources n'y sont pas
+ * écrits : le jeu les régénère à partir de la graine (ResourceManager).
+ *
+ * Usage : WorldPregenerator &lt;seed&gt; &lt;rayon en chunks&gt; [dossier de sortie] [threads]
+ */
+public class WorldPregenerator {
+
+    private final long seed;
+    private final int radius;
+    private final File outputDirectory;
+    private final int threads;
+
+    private final AtomicLong chunksDone = new AtomicLong();
+
+    public WorldPregenerator(long seed, int radius, File outputDirectory, int threads) {
+        this.seed = seed;
+        this.radius = radius;
+        this.outputDirectory = outputDirectory;
+        this.threads = threads;
+    }
+
+    /**
+     * Génère toutes les régions du rayon et affiche la progression
+     */
+    public void run() throws Exception {
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Cannot create output directory " + outputDirectory);
+        }
+
+        final DevMap map = new DevMap(seed);
+        int minRegion = -radius >> RegionFile.REGION_SHIFT;
+        int maxRegion = radius >> RegionFile.REGION_SHIFT;
+        long totalChunks = countChunksInRadius();
+
+        System.out.println("Pre-generating seed " + seed + ", radius " + radius + " chunks (" + totalChunks +
+            " chunks) into " + outputDirectory + " with " + threads + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> tasks = new ArrayList<>();
+        long start = System.nanoTime();
+
+        for (int rx = minRegion; rx <= maxRegion; rx++) {
+            for (int ry = minRegion; ry <= maxRegion; ry++) {
+                final int regionX = rx;
+                final int regionY = ry;
+                tasks.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            generateRegion(map, regionX, regionY);
+                        } catch (IOException e) {
+                            throw new RuntimeException("Region " + regionX + ", " + regionY + " failed", e);
+                        }
+                    }
+                }));
+            }
+        }
+        executor.shutdown();
+
+        // Progression toutes les 2 secondes
+        long lastReport = System.nanoTime();
+        for (Future<?> task : tasks) {
+            while (!task.isDone()) {
+                Thread.sleep(50);
+                if (System.nanoTime() - lastReport > 2_000_000_000L) {
+                    printProgress(start, totalChunks);
+                    lastReport = System.nanoTime();
+                }
+            }
+            task.get(); // propage les erreurs
+        }
+
+        printProgress(start, totalChunks);
+        System.out.println("Done: peak heap " +
+            (peakHeapBytes() >> 20) + " MB");
+    }
+
+    /**
+     * Génère les chunks d'une région situés dans le rayon
+     */
+    private void generateRegion(DevMap map, int regionX, int regionY) throws IOException {
+        int firstChunkX = regionX << RegionFile.REGION_SHIFT;
+        int firstChunkY = regionY << RegionFile.REGION_SHIFT;
+        if (!regionIntersectsRadius(firstChunkX, firstChunkY)) return;
+
+        File file = new File(outputDirectory, "r." + regionX + "." + regionY + ".dat");
+        RegionFile region = new RegionFile(file);
+        byte[] tiles = new byte[ChunkCache.CHUNK_AREA];
+        try {
+            for (int localY = 0; localY < RegionFile.REGION_SIZE; localY++) {
+                for (int localX = 0; localX < RegionFile.REGION_SIZE; localX++) {
+                    int cx = firstChunkX + localX;
+                    int cy = firstChunkY + localY;
+                    if (!inRadius(cx, cy)) continue;
+
+                    map.fillBaseTiles(cx << ChunkCache.CHUNK_SHIFT, cy << ChunkCache.CHUNK_SHIFT,
+                        ChunkCache.CHUNK_SIZE, ChunkCache.CHUNK_SIZE, tiles);
+                    region.writeTiles(localX, localY, tiles);
+                    chunksDone.incrementAndGet();
+                }
+            }
+        } finally {
+            region.close();
+        }
+    }
+
+    private boolean inRadius(int cx, int cy) {
+        return (long) cx * cx + (long) cy * cy <= (long) radius * radius;
+    }
+
+    private boolean regionIntersectsRadius(int firstChunkX, int firstChunkY) {
+        // Point de la région le plus proche du centre
+        int nearestX = Math.max(firstChunkX, Math.min(0, firstChunkX + RegionFile.REGION_MASK));
+        int nearestY = Math.max(firstChunkY, Math.min(0, firstChunkY + RegionFile.REGION_MASK));
+        return inRadius(nearestX, nearestY);
+    }
+
+    private long countChunksInRadius() {
+        long count = 0;
+        for (int cx = -radius; cx <= radius; cx++) {
+            for (int cy = -radius; cy <= radius; cy++) {
+                if (inRadius(cx, cy)) count++;
+            }
+        }
+        return count;
+    }
+
+    private void printProgress(long start, long totalChunks) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long done = chunksDone.get();
+        System.out.printf("%d/%d chunks (%.1f%%), %.0f chunks/s, heap %d MB%n",
+            done, totalChunks, 100.0 * done / Math.max(1, totalChunks), done / Math.max(seconds, 1e-9),
+            (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20);
+    }
+
+    /**
+     * Pic d'utilisation du tas, toutes zones confondues, depuis le démarrage de la JVM
+     */
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: WorldPregenerator <seed> <radius in chunks> [output dir] [threads]");
+            System.exit(1);
+        }
+
+        long seed = Long.parseLong(args[0]);
+        int radius = Integer.parseInt(args[1]);
+        File output = new File(args.length > 2 ? args[2] : "world/" + seed);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        new WorldPregenerator(seed, radius, output, threads).run();
+    }
+}